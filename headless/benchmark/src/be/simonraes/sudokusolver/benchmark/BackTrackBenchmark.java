@@ -0,0 +1,42 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.model.BackTrackSolver;
+import be.simonraes.sudokusolver.model.SudokuBoard;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The naive backtracking solver the app used for animations before they were replayed from a recorded search. Only
+ * run on the easy set, the hard sets take minutes per puzzle with this algorithm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackTrackBenchmark {
+
+    @Param({"easy"})
+    public String corpus;
+
+    private int[][] puzzles;
+
+    private final BackTrackSolver solver = new BackTrackSolver();
+
+    @Setup
+    public void setUp() throws IOException {
+        puzzles = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public void backTrackSolver(Blackhole blackhole) {
+        for (int[] puzzle : puzzles) {
+            final SudokuBoard grid = Corpus.toBoard(puzzle);
+            blackhole.consume(solver.solve(grid));
+        }
+    }
+}
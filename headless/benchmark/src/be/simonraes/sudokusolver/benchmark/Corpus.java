@@ -0,0 +1,71 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.headless.PuzzleFormat;
+import be.simonraes.sudokusolver.model.SudokuBoard;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads one of the bundled puzzle sets: easy (generated, 36 givens), hard (top95 puzzles) or 17clue.
+ */
+public class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns the puzzles of a set as flat boards (index = x * 9 + y).
+     */
+    public static int[][] load(String name) throws IOException {
+        final InputStream stream = Corpus.class.getResourceAsStream("/" + name + ".txt");
+        if (stream == null) {
+            throw new IOException("Unknown puzzle set: " + name);
+        }
+
+        final List<int[]> puzzles = new ArrayList<int[]>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "US-ASCII"));
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int[] cells = new int[PuzzleFormat.LENGTH];
+                if (PuzzleFormat.parse(line, cells)) {
+                    puzzles.add(cells);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return puzzles.toArray(new int[puzzles.size()][]);
+    }
+
+    /**
+     * Converts a flat board to the grid the app works with, givens are marked as input.
+     */
+    public static SudokuBoard toBoard(int[] cells) {
+        final SudokuBoard grid = new SudokuBoard();
+
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] > 0) {
+                grid.setInput(i / 9, i % 9, cells[i]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Converts a flat board to the int[][] layout the DancingLinks solver works on.
+     */
+    public static int[][] toMatrix(int[] cells, int[][] matrix) {
+        for (int i = 0; i < cells.length; i++) {
+            matrix[i / 9][i % 9] = cells[i];
+        }
+        return matrix;
+    }
+}
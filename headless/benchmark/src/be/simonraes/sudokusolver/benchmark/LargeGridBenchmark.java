@@ -0,0 +1,111 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.GeneralizedSolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GeneralizedSolver on 16x16 and 25x25 grids. The puzzles are shuffled copies of a pattern solution with a share
+ * of the cells cleared, generated from a fixed seed so every run solves the same set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeGridBenchmark {
+
+    private static final int PUZZLE_COUNT = 20;
+
+    @Param({"4", "5"})
+    public int boxSize;
+
+    // Share of the cells that stays filled in.
+    @Param({"0.6", "0.4"})
+    public double clueRatio;
+
+    private int[][] puzzles;
+    private int[] cells;
+    private GeneralizedSolver solver;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final int size = boxSize * boxSize;
+
+        puzzles = new int[PUZZLE_COUNT][];
+        for (int i = 0; i < PUZZLE_COUNT; i++) {
+            final int[] puzzle = createSolution(random);
+
+            for (int cell = 0; cell < puzzle.length; cell++) {
+                if (random.nextDouble() >= clueRatio) {
+                    puzzle[cell] = 0;
+                }
+            }
+            puzzles[i] = puzzle;
+        }
+
+        cells = new int[size * size];
+        solver = new GeneralizedSolver(boxSize);
+    }
+
+    @Benchmark
+    public void generalizedSolver(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(solver.solve(cells));
+        }
+    }
+
+    /**
+     * Shuffles the digits, the bands and the rows within every band of the standard pattern solution,
+     * and does the same for the stacks and columns.
+     */
+    private int[] createSolution(final Random random) {
+        final int size = boxSize * boxSize;
+        final int[] digits = shuffledRange(random, size);
+        final int[] rows = shuffledLines(random);
+        final int[] cols = shuffledLines(random);
+        final int[] solution = new int[size * size];
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                final int row = rows[x];
+                solution[x * size + y] = digits[(boxSize * (row % boxSize) + row / boxSize + cols[y]) % size] + 1;
+            }
+        }
+        return solution;
+    }
+
+    private int[] shuffledLines(final Random random) {
+        final int[] bands = shuffledRange(random, boxSize);
+        final int[] lines = new int[boxSize * boxSize];
+
+        for (int band = 0; band < boxSize; band++) {
+            final int[] offsets = shuffledRange(random, boxSize);
+            for (int i = 0; i < boxSize; i++) {
+                lines[band * boxSize + i] = bands[band] * boxSize + offsets[i];
+            }
+        }
+        return lines;
+    }
+
+    private static int[] shuffledRange(final Random random, final int length) {
+        final int[] range = new int[length];
+        for (int i = 0; i < length; i++) {
+            range[i] = i;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int swap = range[i];
+            range[i] = range[j];
+            range[j] = swap;
+        }
+        return range;
+    }
+}
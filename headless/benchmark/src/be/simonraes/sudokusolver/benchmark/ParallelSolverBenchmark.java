@@ -0,0 +1,70 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.headless.ParallelSolver;
+import be.simonraes.sudokusolver.model.FasterSolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of single hard puzzles: the sequential FasterSolver against the ParallelSolver on the common pool, which
+ * uses every core. The puzzles are solved one after the other, so any gain comes from splitting a single search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSolverBenchmark {
+
+    @Param({"hard", "17clue"})
+    public String corpus;
+
+    @Param({"2", "4"})
+    public int splitDepth;
+
+    private int[][] puzzles;
+    private final int[] cells = new int[81];
+
+    private final FasterSolver sequentialSolver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES);
+    private ParallelSolver deterministicSolver;
+    private ParallelSolver firstFoundSolver;
+
+    @Setup
+    public void setUp() throws IOException {
+        puzzles = Corpus.load(corpus);
+        deterministicSolver = new ParallelSolver(ForkJoinPool.commonPool(), splitDepth,
+                FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES, true);
+        firstFoundSolver = new ParallelSolver(ForkJoinPool.commonPool(), splitDepth,
+                FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES, false);
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(sequentialSolver.solve(cells));
+        }
+    }
+
+    @Benchmark
+    public void parallelDeterministic(Blackhole blackhole) {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(deterministicSolver.solve(cells));
+        }
+    }
+
+    @Benchmark
+    public void parallelFirstFound(Blackhole blackhole) {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(firstFoundSolver.solve(cells));
+        }
+    }
+}
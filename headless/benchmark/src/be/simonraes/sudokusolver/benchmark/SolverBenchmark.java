@@ -0,0 +1,79 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.DancingLinks;
+import be.simonraes.sudokusolver.model.FasterSolver;
+import be.simonraes.sudokusolver.model.GeneralizedSolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves a whole puzzle set per operation with each of the fast engines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"easy", "hard", "17clue"})
+    public String corpus;
+
+    private int[][] puzzles;
+    private final int[] cells = new int[81];
+    private final int[][] matrix = new int[9][9];
+
+    private final FasterSolver firstEmptyCellSolver = new FasterSolver(FasterSolver.BranchStrategy.FIRST_EMPTY_CELL);
+    private final FasterSolver minimumRemainingValuesSolver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES);
+    private final DancingLinks dancingLinks = new DancingLinks();
+    private final GeneralizedSolver generalizedSolver = new GeneralizedSolver(3);
+
+    @Setup
+    public void setUp() throws IOException {
+        puzzles = Corpus.load(corpus);
+    }
+
+    @Benchmark
+    public void fasterSolverFirstEmptyCell(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(firstEmptyCellSolver.solve(cells));
+        }
+    }
+
+    @Benchmark
+    public void fasterSolverMinimumRemainingValues(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(minimumRemainingValuesSolver.solve(cells));
+        }
+    }
+
+    @Benchmark
+    public void fasterSolverUniqueness(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(minimumRemainingValuesSolver.countSolutions(cells, 2));
+        }
+    }
+
+    @Benchmark
+    public void generalizedSolver(Blackhole blackhole) throws CalculationTimeOutException {
+        for (int[] puzzle : puzzles) {
+            System.arraycopy(puzzle, 0, cells, 0, cells.length);
+            blackhole.consume(generalizedSolver.solve(cells));
+        }
+    }
+
+    @Benchmark
+    public void dancingLinks(Blackhole blackhole) {
+        for (int[] puzzle : puzzles) {
+            blackhole.consume(dancingLinks.solve(Corpus.toMatrix(puzzle, matrix)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package be.simonraes.sudokusolver.benchmark;
+
+import be.simonraes.sudokusolver.model.BackTrackSolver;
+import be.simonraes.sudokusolver.model.ConflictIndex;
+import be.simonraes.sudokusolver.model.SudokuBoard;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The error check that runs on every keystroke, on the givens of every puzzle in a set: a full rescan with
+ * isErrorFree, and the incremental ConflictIndex entering and clearing a digit in the first empty cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    @Param({"easy", "hard", "17clue"})
+    public String corpus;
+
+    private SudokuBoard[] grids;
+    private ConflictIndex[] indexes;
+    private int[] emptyCells;
+
+    private final BackTrackSolver solver = new BackTrackSolver();
+
+    @Setup
+    public void setUp() throws IOException {
+        final int[][] puzzles = Corpus.load(corpus);
+
+        grids = new SudokuBoard[puzzles.length];
+        indexes = new ConflictIndex[puzzles.length];
+        emptyCells = new int[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++) {
+            grids[i] = Corpus.toBoard(puzzles[i]);
+            indexes[i] = new ConflictIndex();
+            indexes[i].load(grids[i]);
+
+            while (puzzles[i][emptyCells[i]] != 0) {
+                emptyCells[i]++;
+            }
+        }
+    }
+
+    @Benchmark
+    public void isErrorFree(Blackhole blackhole) {
+        for (SudokuBoard grid : grids) {
+            blackhole.consume(solver.isErrorFree(grid));
+        }
+    }
+
+    @Benchmark
+    public void conflictIndexUpdate(Blackhole blackhole) {
+        for (int i = 0; i < grids.length; i++) {
+            final int x = emptyCells[i] / 9;
+            final int y = emptyCells[i] % 9;
+
+            grids[i].setInput(x, y, 1);
+            indexes[i].update(grids[i], x, y);
+            blackhole.consume(indexes[i].isErrorFree());
+
+            grids[i].clear(x, y);
+            indexes[i].update(grids[i], x, y);
+            blackhole.consume(indexes[i].isErrorFree());
+        }
+    }
+}
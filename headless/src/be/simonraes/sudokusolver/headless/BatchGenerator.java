@@ -0,0 +1,223 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.model.PuzzleGenerator;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Generates puzzles with a unique solution on a thread pool, one PuzzleGenerator per worker. Puzzles are written one
+ * per line as soon as a worker has a chunk ready, so the output order depends on the thread timing. The count is split
+ * evenly over the workers up front. With a seed every worker gets its own Random seeded from it, so the same seed and
+ * thread count give the same set of puzzles.
+ * Puzzles that can't be brought down to the target clue count are thrown away and counted as rejected, below about
+ * 24 clues most attempts are rejected.
+ * Usage: BatchGenerator [-threads n] [-count n] [-clues n] [-symmetry none|rotational|mirror|diagonal] [-seed n]
+ * [output]
+ */
+public class BatchGenerator {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final int threadCount;
+    private PuzzleGenerator.Symmetry symmetry = PuzzleGenerator.Symmetry.NONE;
+    private int targetClueCount;
+    private Long seed;
+
+    public BatchGenerator(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public void setSymmetry(PuzzleGenerator.Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * See PuzzleGenerator.setTargetClueCount, 0 for minimal puzzles.
+     */
+    public void setTargetClueCount(int targetClueCount) {
+        this.targetClueCount = targetClueCount;
+    }
+
+    /**
+     * Makes the run repeatable for a given thread count, null to seed from the clock.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Totals of one generator run.
+     */
+    public static class Statistics {
+        public long puzzleCount;
+        public long rejectedCount;
+        public long clueCount;
+        public long nodeCount;
+        public long durationNanos;
+
+        public double getPuzzlesPerSecond() {
+            return durationNanos == 0 ? 0 : puzzleCount * 1e9 / durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Generated %d puzzles in %d ms (%.0f puzzles/s, %.1f clues on average, %d rejected, %d guesses)",
+                    puzzleCount, durationNanos / 1000000, getPuzzlesPerSecond(),
+                    puzzleCount == 0 ? 0.0 : (double) clueCount / puzzleCount, rejectedCount, nodeCount);
+        }
+    }
+
+    /**
+     * Generates count puzzles and writes them to the output.
+     */
+    public Statistics run(final long count, final Writer out) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final List<Future<Worker>> workers = new ArrayList<Future<Worker>>(threadCount);
+        final long baseSeed = seed != null ? seed : System.nanoTime();
+        final long startTime = System.nanoTime();
+        final Statistics statistics = new Statistics();
+
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                final long workerCount = count / threadCount + (i < count % threadCount ? 1 : 0);
+                workers.add(executor.submit(new Worker(new Random(baseSeed + i), workerCount, out)));
+            }
+
+            for (Future<Worker> future : workers) {
+                final Worker worker;
+                try {
+                    worker = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+
+                statistics.puzzleCount += worker.puzzleCount;
+                statistics.rejectedCount += worker.rejectedCount;
+                statistics.clueCount += worker.clueCount;
+                statistics.nodeCount += worker.nodeCount;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        out.flush();
+        statistics.durationNanos = System.nanoTime() - startTime;
+        return statistics;
+    }
+
+    /**
+     * Generates its share of the puzzles, writing them in chunks.
+     */
+    private class Worker implements Callable<Worker> {
+
+        private final PuzzleGenerator generator;
+        private final long count;
+        private final Writer out;
+        private final StringBuilder output = new StringBuilder(CHUNK_SIZE * (PuzzleFormat.LENGTH + 1));
+        private long puzzleCount;
+        private long rejectedCount;
+        private long clueCount;
+        private long nodeCount;
+
+        Worker(Random random, long count, Writer out) {
+            this.generator = new PuzzleGenerator(random);
+            this.count = count;
+            this.out = out;
+            generator.setSymmetry(symmetry);
+            generator.setTargetClueCount(targetClueCount);
+        }
+
+        @Override
+        public Worker call() throws IOException {
+            final int[] cells = new int[PuzzleFormat.LENGTH];
+            int chunkCount = 0;
+
+            while (puzzleCount < count) {
+                while (!generator.generate(cells)) {
+                    nodeCount += generator.getNodeCount();
+                    rejectedCount++;
+                    if (Thread.currentThread().isInterrupted()) {
+                        return this;
+                    }
+                }
+                nodeCount += generator.getNodeCount();
+
+                for (int i = 0; i < PuzzleFormat.LENGTH; i++) {
+                    if (cells[i] != 0) {
+                        clueCount++;
+                    }
+                }
+                PuzzleFormat.append(cells, output);
+                output.append('\n');
+                puzzleCount++;
+
+                if (++chunkCount == CHUNK_SIZE) {
+                    flush();
+                    chunkCount = 0;
+                }
+            }
+
+            flush();
+            return this;
+        }
+
+        private void flush() throws IOException {
+            synchronized (out) {
+                out.write(output.toString());
+            }
+            output.setLength(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        long count = 1000;
+        int targetClueCount = 0;
+        PuzzleGenerator.Symmetry symmetry = PuzzleGenerator.Symmetry.NONE;
+        Long seed = null;
+        String outputFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-count") && i + 1 < args.length) {
+                count = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-clues") && i + 1 < args.length) {
+                targetClueCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-symmetry") && i + 1 < args.length) {
+                symmetry = PuzzleGenerator.Symmetry.valueOf(args[++i].toUpperCase(Locale.US));
+            } else if (args[i].equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (outputFile == null && !args[i].startsWith("-")) {
+                outputFile = args[i];
+            } else {
+                System.err.println("Usage: BatchGenerator [-threads n] [-count n] [-clues n]"
+                        + " [-symmetry none|rotational|mirror|diagonal] [-seed n] [output]");
+                System.exit(1);
+            }
+        }
+
+        final Writer out = new BufferedWriter(outputFile == null ? new OutputStreamWriter(System.out, "US-ASCII")
+                : new OutputStreamWriter(new FileOutputStream(outputFile), "US-ASCII"), 1 << 16);
+
+        try {
+            final BatchGenerator batchGenerator = new BatchGenerator(threadCount);
+            batchGenerator.setSymmetry(symmetry);
+            batchGenerator.setTargetClueCount(targetClueCount);
+            batchGenerator.setSeed(seed);
+            final Statistics statistics = batchGenerator.run(count, out);
+            System.err.println(statistics);
+        } finally {
+            out.close();
+        }
+    }
+}
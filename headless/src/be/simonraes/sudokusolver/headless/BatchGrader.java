@@ -0,0 +1,262 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.DifficultyGrader;
+import be.simonraes.sudokusolver.model.FasterSolver;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+
+/**
+ * Grades a file of puzzles (one 81 character puzzle per line) by the strongest technique they need, see
+ * DifficultyGrader. The input is streamed through a thread pool in chunks like in BatchSolver, so memory stays bounded
+ * and the output is in input order. Every line reads "level technique guesses puzzle", so sort -k1,1n -k3,3n orders a
+ * corpus from easy to hard. Puzzles without a solution get level 0 and "none", puzzles with several solutions level 0
+ * and "multiple".
+ * Usage: BatchGrader [-threads n] [-timeout ms] [-nodes n] input [output]
+ */
+public class BatchGrader {
+
+    public static final String MULTIPLE = "multiple";
+
+    private static final int CHUNK_SIZE = 1024;
+    // Levels run from 0 (no unique solution) to GUESS.
+    private static final int LEVEL_COUNT = DifficultyGrader.STRENGTH_ORDER.length + 2;
+
+    private final int threadCount;
+    private long maxDurationMillis;
+    private long maxNodeCount;
+
+    private final ThreadLocal<DifficultyGrader> graders = new ThreadLocal<DifficultyGrader>() {
+        @Override
+        protected DifficultyGrader initialValue() {
+            final FasterSolver solver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES);
+            solver.setLimits(maxDurationMillis, maxNodeCount);
+            return new DifficultyGrader(solver);
+        }
+    };
+
+    public BatchGrader(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Limits the final solve of puzzles that need guessing, see FasterSolver.setLimits. Puzzles that hit a limit are
+     * reported as TIMED_OUT.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * Totals of one grading run.
+     */
+    public static class Statistics {
+        public long puzzleCount;
+        public long nodeCount;
+        public long durationNanos;
+        // Number of puzzles per level, see DifficultyGrader.Grade.getLevel.
+        public final long[] levelCounts = new long[LEVEL_COUNT];
+        public long timedOutCount;
+        public long invalidCount;
+
+        public double getPuzzlesPerSecond() {
+            return durationNanos == 0 ? 0 : puzzleCount * 1e9 / durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.US, "Graded %d puzzles in %d ms (%.0f puzzles/s, %d guesses)",
+                    puzzleCount, durationNanos / 1000000, getPuzzlesPerSecond(), nodeCount));
+
+            for (int level = 0; level < LEVEL_COUNT; level++) {
+                builder.append(String.format("%n  %2d %-18s %10d", level, levelName(level), levelCounts[level]));
+            }
+            builder.append(String.format("%n     %-18s %10d", BatchSolver.TIMED_OUT, timedOutCount));
+            builder.append(String.format("%n     %-18s %10d", BatchSolver.INVALID_INPUT, invalidCount));
+            return builder.toString();
+        }
+
+        private static String levelName(final int level) {
+            if (level == 0) {
+                return BatchSolver.NONE + "/" + MULTIPLE;
+            }
+            return level > DifficultyGrader.STRENGTH_ORDER.length ? "GUESS"
+                    : DifficultyGrader.STRENGTH_ORDER[level - 1].toString();
+        }
+    }
+
+    /**
+     * Grades every line of the input and writes one line per puzzle, or TIMED_OUT or INVALID_INPUT.
+     * Empty lines are skipped. At most two chunks per thread are in flight.
+     */
+    public Statistics run(final BufferedReader in, final Writer out) throws IOException {
+        final Statistics statistics = new Statistics();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        final long startTime = System.nanoTime();
+
+        try {
+            List<String> lines = new ArrayList<String>(CHUNK_SIZE);
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+
+                lines.add(line);
+
+                if (lines.size() == CHUNK_SIZE) {
+                    pending.add(executor.submit(new Chunk(lines)));
+                    lines = new ArrayList<String>(CHUNK_SIZE);
+
+                    if (pending.size() >= threadCount * 2) {
+                        write(pending.poll(), out, statistics);
+                    }
+                }
+            }
+
+            if (!lines.isEmpty()) {
+                pending.add(executor.submit(new Chunk(lines)));
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, statistics);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        out.flush();
+        statistics.durationNanos = System.nanoTime() - startTime;
+        return statistics;
+    }
+
+    private void write(final Future<Chunk> future, final Writer out, final Statistics statistics) throws IOException {
+        final Chunk chunk;
+
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        out.write(chunk.output.toString());
+        statistics.puzzleCount += chunk.lines.size();
+        statistics.nodeCount += chunk.nodeCount;
+        statistics.timedOutCount += chunk.timedOutCount;
+        statistics.invalidCount += chunk.invalidCount;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            statistics.levelCounts[level] += chunk.levelCounts[level];
+        }
+    }
+
+    /**
+     * A block of input lines, graded by one worker.
+     */
+    private class Chunk implements Callable<Chunk> {
+
+        private final List<String> lines;
+        private final StringBuilder output;
+        private long nodeCount;
+        private final long[] levelCounts = new long[LEVEL_COUNT];
+        private long timedOutCount;
+        private long invalidCount;
+
+        Chunk(List<String> lines) {
+            this.lines = lines;
+            this.output = new StringBuilder(lines.size() * (PuzzleFormat.LENGTH + 24));
+        }
+
+        @Override
+        public Chunk call() {
+            final DifficultyGrader grader = graders.get();
+            final DifficultyGrader.Grade grade = new DifficultyGrader.Grade();
+            final int[] cells = new int[PuzzleFormat.LENGTH];
+
+            for (String line : lines) {
+                if (!PuzzleFormat.parse(line, cells)) {
+                    output.append(BatchSolver.INVALID_INPUT).append('\n');
+                    invalidCount++;
+                    continue;
+                }
+
+                try {
+                    grader.grade(cells, grade);
+                } catch (CalculationTimeOutException e) {
+                    output.append(BatchSolver.TIMED_OUT).append('\n');
+                    timedOutCount++;
+                    continue;
+                }
+
+                final int level = grade.getSolutionCount() == 1 ? grade.getLevel() : 0;
+                output.append(level).append(' ');
+                if (grade.getSolutionCount() == 0) {
+                    output.append(BatchSolver.NONE);
+                } else if (grade.getSolutionCount() > 1) {
+                    output.append(MULTIPLE);
+                } else {
+                    output.append(grade.getHardestTechnique());
+                }
+                output.append(' ').append(grade.getNodeCount()).append(' ');
+                PuzzleFormat.append(cells, output);
+                output.append('\n');
+
+                levelCounts[level]++;
+                nodeCount += grade.getNodeCount();
+            }
+            return this;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        long maxDurationMillis = 0;
+        long maxNodeCount = 0;
+        String inputFile = null;
+        String outputFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                maxDurationMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-nodes") && i + 1 < args.length) {
+                maxNodeCount = Long.parseLong(args[++i]);
+            } else if (inputFile == null) {
+                inputFile = args[i];
+            } else {
+                outputFile = args[i];
+            }
+        }
+
+        if (inputFile == null) {
+            System.err.println("Usage: BatchGrader [-threads n] [-timeout ms] [-nodes n] input [output]");
+            System.exit(1);
+        }
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "US-ASCII"), 1 << 16);
+        final Writer out = new BufferedWriter(outputFile == null ? new OutputStreamWriter(System.out, "US-ASCII")
+                : new OutputStreamWriter(new FileOutputStream(outputFile), "US-ASCII"), 1 << 16);
+
+        try {
+            final BatchGrader batchGrader = new BatchGrader(threadCount);
+            batchGrader.setLimits(maxDurationMillis, maxNodeCount);
+            final Statistics statistics = batchGrader.run(in, out);
+            System.err.println(statistics);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.CachingSolver;
+import be.simonraes.sudokusolver.model.FasterSolver;
+import be.simonraes.sudokusolver.model.GeneralizedSolver;
+import be.simonraes.sudokusolver.model.SolutionCache;
+import be.simonraes.sudokusolver.model.SolveStatistics;
+import be.simonraes.sudokusolver.model.Technique;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Solves a file of puzzles (one 81 character puzzle per line) on a thread pool.
+ * Every worker thread reuses a single FasterSolver, solutions are written in input order.
+ * With -uniqueness every line starts with "unique", "multiple" or "none", followed by the first solution.
+ * With -stats the per-technique counters of all solves are added up and printed with the totals, -disable switches
+ * off logical techniques (comma separated Technique names, e.g. x_wing,hidden_pair) to measure what they are worth.
+ * Every technique but guess can be switched off.
+ * -cache n puts a SolutionCache of n canonical puzzles in front of the solvers, which only pays off if the input
+ * repeats puzzles or versions of them: canonicalizing costs about as much as solving an easy puzzle.
+ * The input can also be a PackedPuzzleFormat file, which is memory-mapped and decoded without parsing.
+ * -box n solves bigger grids (box size 4 is 16x16) with the GeneralizedSolver, one size * size character puzzle per
+ * line in the PuzzleFormat symbols. That solver has no statistics or technique switches and isn't cached, so -box
+ * only goes with text input and not with -stats, -disable or -cache.
+ * Usage: BatchSolver [-threads n] [-strategy first|mrv] [-uniqueness] [-stats] [-disable techniques] [-cache n]
+ * [-box n] [-timeout ms] [-nodes n] input [output]
+ */
+public class BatchSolver {
+
+    public static final String NO_SOLUTION = "no solution";
+    public static final String INVALID_INPUT = "invalid input";
+    public static final String TIMED_OUT = "timed out";
+    public static final String UNIQUE = "unique";
+    public static final String MULTIPLE = "multiple";
+    public static final String NONE = "none";
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final int DEFAULT_BOX_SIZE = 3;
+    private static final int DEFAULT_SIZE = DEFAULT_BOX_SIZE * DEFAULT_BOX_SIZE;
+
+    private final int threadCount;
+    private final FasterSolver.BranchStrategy branchStrategy;
+    private boolean checkUniqueness;
+    private boolean collectStatistics;
+    private Set<Technique> disabledTechniques = EnumSet.noneOf(Technique.class);
+    private long maxDurationMillis;
+    private long maxNodeCount;
+    private SolutionCache cache;
+    private int boxSize = DEFAULT_BOX_SIZE;
+
+    private final ThreadLocal<FasterSolver> solvers = new ThreadLocal<FasterSolver>() {
+        @Override
+        protected FasterSolver initialValue() {
+            final FasterSolver solver = new FasterSolver(branchStrategy);
+            solver.setLimits(maxDurationMillis, maxNodeCount);
+            if (collectStatistics) {
+                solver.setStatistics(new SolveStatistics());
+            }
+            for (Technique technique : disabledTechniques) {
+                solver.setTechniqueEnabled(technique, false);
+            }
+            return solver;
+        }
+    };
+
+    private final ThreadLocal<CachingSolver> cachingSolvers = new ThreadLocal<CachingSolver>() {
+        @Override
+        protected CachingSolver initialValue() {
+            return new CachingSolver(solvers.get(), cache);
+        }
+    };
+
+    private final ThreadLocal<GeneralizedSolver> generalizedSolvers = new ThreadLocal<GeneralizedSolver>() {
+        @Override
+        protected GeneralizedSolver initialValue() {
+            final GeneralizedSolver solver = new GeneralizedSolver(boxSize);
+            solver.setBranchStrategy(branchStrategy);
+            solver.setLimits(maxDurationMillis, maxNodeCount);
+            return solver;
+        }
+    };
+
+    public BatchSolver(int threadCount, FasterSolver.BranchStrategy branchStrategy) {
+        this.threadCount = threadCount;
+        this.branchStrategy = branchStrategy;
+    }
+
+    /**
+     * If enabled, every puzzle is searched for a second solution and the output lines start with a verdict.
+     */
+    public void setCheckUniqueness(boolean checkUniqueness) {
+        this.checkUniqueness = checkUniqueness;
+    }
+
+    /**
+     * If enabled, the SolveStatistics of every puzzle are added up in Statistics.solveStatistics.
+     */
+    public void setCollectStatistics(boolean collectStatistics) {
+        this.collectStatistics = collectStatistics;
+    }
+
+    public void setDisabledTechniques(Set<Technique> disabledTechniques) {
+        this.disabledTechniques = disabledTechniques;
+    }
+
+    /**
+     * Answers repeated puzzles from a cache of the given number of canonical puzzles, 0 to solve every puzzle.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cache = cacheSize > 0 ? new SolutionCache(cacheSize) : null;
+    }
+
+    /**
+     * Solves text lines of the given box size with the GeneralizedSolver, 3 (the default) uses the FasterSolver.
+     * Statistics, disabled techniques and the cache only apply to the FasterSolver.
+     */
+    public void setBoxSize(int boxSize) {
+        if (boxSize < GeneralizedSolver.MIN_BOX_SIZE || boxSize > GeneralizedSolver.MAX_BOX_SIZE) {
+            throw new IllegalArgumentException("Box size must be between " + GeneralizedSolver.MIN_BOX_SIZE
+                    + " and " + GeneralizedSolver.MAX_BOX_SIZE + ": " + boxSize);
+        }
+        this.boxSize = boxSize;
+    }
+
+    /**
+     * Limits every single puzzle, see FasterSolver.setLimits. Puzzles that hit a limit are reported as TIMED_OUT.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * Totals of one batch run.
+     */
+    public static class Statistics {
+        public long puzzleCount;
+        public long solvedCount;
+        public long nodeCount;
+        public long durationNanos;
+        // Only set if statistics are collected.
+        public SolveStatistics solveStatistics;
+        // Only counted if a cache is used.
+        public long cacheHitCount;
+        public long cacheMissCount;
+
+        public double getPuzzlesPerSecond() {
+            return durationNanos == 0 ? 0 : puzzleCount * 1e9 / durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            final String summary = String.format("Solved %d of %d puzzles in %d ms (%.0f puzzles/s, %d guesses)",
+                    solvedCount, puzzleCount, durationNanos / 1000000, getPuzzlesPerSecond(), nodeCount);
+            final String cacheSummary = cacheHitCount + cacheMissCount == 0 ? summary
+                    : summary + String.format(", cache: %d hits, %d misses", cacheHitCount, cacheMissCount);
+            return solveStatistics == null ? cacheSummary : cacheSummary + String.format("%n") + solveStatistics;
+        }
+    }
+
+    /**
+     * Solves every line of the input and writes one line per puzzle: the solution, NO_SOLUTION, TIMED_OUT or
+     * INVALID_INPUT.
+     * Empty lines are skipped. At most two chunks per thread are in flight, so memory stays bounded on any input size.
+     */
+    public Statistics run(final BufferedReader in, final Writer out) throws IOException {
+        final Statistics statistics = createStatistics();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        final long startTime = System.nanoTime();
+        final long cacheHitsBefore = cache == null ? 0 : cache.getHitCount();
+        final long cacheMissesBefore = cache == null ? 0 : cache.getMissCount();
+
+        try {
+            List<String> lines = new ArrayList<String>(CHUNK_SIZE);
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+
+                lines.add(line);
+
+                if (lines.size() == CHUNK_SIZE) {
+                    submit(executor, new Chunk(lines), pending, out, statistics);
+                    lines = new ArrayList<String>(CHUNK_SIZE);
+                }
+            }
+
+            if (!lines.isEmpty()) {
+                pending.add(executor.submit(new Chunk(lines)));
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, statistics);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        finishStatistics(statistics, startTime, cacheHitsBefore, cacheMissesBefore);
+        out.flush();
+        return statistics;
+    }
+
+    /**
+     * Same as run for a packed corpus, every record gives one output line. The workers decode their records straight
+     * from the mapping.
+     */
+    public Statistics run(final PackedCorpus corpus, final Writer out) throws IOException {
+        final Statistics statistics = createStatistics();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        final long startTime = System.nanoTime();
+        final long cacheHitsBefore = cache == null ? 0 : cache.getHitCount();
+        final long cacheMissesBefore = cache == null ? 0 : cache.getMissCount();
+
+        try {
+            for (long first = 0; first < corpus.getRecordCount(); first += CHUNK_SIZE) {
+                final int count = (int) Math.min(CHUNK_SIZE, corpus.getRecordCount() - first);
+                submit(executor, new Chunk(corpus, first, count), pending, out, statistics);
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, statistics);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        finishStatistics(statistics, startTime, cacheHitsBefore, cacheMissesBefore);
+        out.flush();
+        return statistics;
+    }
+
+    private Statistics createStatistics() {
+        final Statistics statistics = new Statistics();
+        if (collectStatistics) {
+            statistics.solveStatistics = new SolveStatistics();
+        }
+        return statistics;
+    }
+
+    private void finishStatistics(final Statistics statistics, final long startTime, final long cacheHitsBefore,
+                                  final long cacheMissesBefore) {
+        statistics.durationNanos = System.nanoTime() - startTime;
+        if (cache != null) {
+            statistics.cacheHitCount = cache.getHitCount() - cacheHitsBefore;
+            statistics.cacheMissCount = cache.getMissCount() - cacheMissesBefore;
+        }
+    }
+
+    /**
+     * Queues a chunk, first writing the oldest one if the window of chunks in flight is full.
+     */
+    private void submit(final ExecutorService executor, final Chunk chunk, final ArrayDeque<Future<Chunk>> pending,
+                        final Writer out, final Statistics statistics) throws IOException {
+        pending.add(executor.submit(chunk));
+
+        if (pending.size() >= threadCount * 2) {
+            write(pending.poll(), out, statistics);
+        }
+    }
+
+    private void write(final Future<Chunk> future, final Writer out, final Statistics statistics) throws IOException {
+        final Chunk chunk;
+
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        out.write(chunk.output.toString());
+        statistics.puzzleCount += chunk.count;
+        statistics.solvedCount += chunk.solvedCount;
+        statistics.nodeCount += chunk.nodeCount;
+        if (chunk.solveStatistics != null) {
+            statistics.solveStatistics.add(chunk.solveStatistics);
+        }
+    }
+
+    /**
+     * A block of input lines or packed records, solved by one worker.
+     */
+    private class Chunk implements Callable<Chunk> {
+
+        // Either lines or a range of corpus records.
+        private final List<String> lines;
+        private final PackedCorpus corpus;
+        private final long first;
+        private final int count;
+        private final StringBuilder output;
+        private int solvedCount;
+        private long nodeCount;
+        private final SolveStatistics solveStatistics;
+
+        Chunk(List<String> lines) {
+            this(lines, null, 0, lines.size());
+        }
+
+        Chunk(PackedCorpus corpus, long first, int count) {
+            this(null, corpus, first, count);
+        }
+
+        private Chunk(List<String> lines, PackedCorpus corpus, long first, int count) {
+            this.lines = lines;
+            this.corpus = corpus;
+            this.first = first;
+            this.count = count;
+            this.output = new StringBuilder(count * (PuzzleFormat.LENGTH + 1));
+            this.solveStatistics = collectStatistics ? new SolveStatistics() : null;
+        }
+
+        @Override
+        public Chunk call() {
+            if (boxSize != DEFAULT_BOX_SIZE && lines != null) {
+                return callGeneralized();
+            }
+
+            final FasterSolver solver = solvers.get();
+            final CachingSolver cachingSolver = cache == null ? null : cachingSolvers.get();
+            final int[] cells = new int[PuzzleFormat.LENGTH];
+
+            for (int i = 0; i < count; i++) {
+                boolean solved = false;
+                try {
+                    if (lines != null ? !PuzzleFormat.parse(lines.get(i), cells) : !corpus.read(first + i, cells)) {
+                        output.append(INVALID_INPUT);
+                    } else if (checkUniqueness) {
+                        appendVerdict(cachingSolver == null ? solver.countSolutions(cells, 2)
+                                : cachingSolver.countSolutions(cells, 2), cells, DEFAULT_SIZE);
+                        solved = true;
+                    } else if (cachingSolver == null ? solver.solve(cells) : cachingSolver.solve(cells)) {
+                        PuzzleFormat.append(cells, output);
+                        solvedCount++;
+                        solved = true;
+                    } else {
+                        output.append(NO_SOLUTION);
+                        solved = true;
+                    }
+                } catch (CalculationTimeOutException e) {
+                    output.append(TIMED_OUT);
+                }
+                output.append('\n');
+
+                // A cached answer didn't touch the solver, its counters still belong to the previous puzzle.
+                if (solved && cachingSolver != null && cachingSolver.isLastAnswerCached()) {
+                    continue;
+                }
+                nodeCount += solver.getNodeCount();
+                if (solveStatistics != null) {
+                    solveStatistics.add(solver.getStatistics());
+                }
+            }
+            return this;
+        }
+
+        private Chunk callGeneralized() {
+            final GeneralizedSolver solver = generalizedSolvers.get();
+            final int size = solver.getSize();
+            final int[] cells = new int[size * size];
+
+            for (int i = 0; i < count; i++) {
+                try {
+                    if (!PuzzleFormat.parse(lines.get(i), cells, size)) {
+                        output.append(INVALID_INPUT);
+                    } else if (checkUniqueness) {
+                        appendVerdict(solver.countSolutions(cells, 2), cells, size);
+                    } else if (solver.solve(cells)) {
+                        PuzzleFormat.append(cells, size, output);
+                        solvedCount++;
+                    } else {
+                        output.append(NO_SOLUTION);
+                    }
+                } catch (CalculationTimeOutException e) {
+                    output.append(TIMED_OUT);
+                }
+                output.append('\n');
+                nodeCount += solver.getNodeCount();
+            }
+            return this;
+        }
+
+        private void appendVerdict(final int solutionCount, final int[] cells, final int size) {
+            if (solutionCount == 0) {
+                output.append(NONE);
+                return;
+            }
+
+            output.append(solutionCount == 1 ? UNIQUE : MULTIPLE).append(' ');
+            if (size == DEFAULT_SIZE) {
+                PuzzleFormat.append(cells, output);
+            } else {
+                PuzzleFormat.append(cells, size, output);
+            }
+            solvedCount++;
+        }
+    }
+
+    private static Technique findTechnique(final String name) {
+        for (Technique technique : Technique.values()) {
+            if (technique.name().equals(name)) {
+                return technique;
+            }
+        }
+        return null;
+    }
+
+    private static String switchableTechniques() {
+        final StringBuilder names = new StringBuilder();
+        for (Technique technique : Technique.values()) {
+            if (technique != Technique.GUESS) {
+                names.append(names.length() == 0 ? "" : ",").append(technique.name().toLowerCase(Locale.US));
+            }
+        }
+        return names.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        FasterSolver.BranchStrategy branchStrategy = FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+        boolean checkUniqueness = false;
+        boolean collectStatistics = false;
+        final Set<Technique> disabledTechniques = EnumSet.noneOf(Technique.class);
+        long maxDurationMillis = 0;
+        long maxNodeCount = 0;
+        int cacheSize = 0;
+        int boxSize = DEFAULT_BOX_SIZE;
+        boolean validTechniques = true;
+        String inputFile = null;
+        String outputFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-strategy") && i + 1 < args.length) {
+                branchStrategy = args[++i].equals("first") ? FasterSolver.BranchStrategy.FIRST_EMPTY_CELL
+                        : FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+            } else if (args[i].equals("-uniqueness")) {
+                checkUniqueness = true;
+            } else if (args[i].equals("-stats")) {
+                collectStatistics = true;
+            } else if (args[i].equals("-disable") && i + 1 < args.length) {
+                for (String name : args[++i].split(",")) {
+                    final Technique technique = findTechnique(name.trim().toUpperCase(Locale.US));
+                    if (technique == null || technique == Technique.GUESS) {
+                        validTechniques = false;
+                    } else {
+                        disabledTechniques.add(technique);
+                    }
+                }
+            } else if (args[i].equals("-cache") && i + 1 < args.length) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-box") && i + 1 < args.length) {
+                boxSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                maxDurationMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-nodes") && i + 1 < args.length) {
+                maxNodeCount = Long.parseLong(args[++i]);
+            } else if (inputFile == null) {
+                inputFile = args[i];
+            } else {
+                outputFile = args[i];
+            }
+        }
+
+        final boolean validBoxSize = boxSize == DEFAULT_BOX_SIZE || (boxSize >= GeneralizedSolver.MIN_BOX_SIZE
+                && boxSize <= GeneralizedSolver.MAX_BOX_SIZE && !collectStatistics && disabledTechniques.isEmpty()
+                && cacheSize == 0);
+        if (inputFile == null || !validBoxSize || !validTechniques) {
+            System.err.println("Usage: BatchSolver [-threads n] [-strategy first|mrv] [-uniqueness] [-stats] [-disable techniques]"
+                    + " [-cache n] [-box n] [-timeout ms] [-nodes n] input [output]");
+            System.err.println("-disable takes any of " + switchableTechniques() + ".");
+            System.err.println("-box takes " + GeneralizedSolver.MIN_BOX_SIZE + " to " + GeneralizedSolver.MAX_BOX_SIZE
+                    + " and, unless it is 3, text input without -stats, -disable or -cache.");
+            System.exit(1);
+        }
+
+        final PackedCorpus corpus = PackedCorpus.isPacked(new File(inputFile)) ? new PackedCorpus(new File(inputFile)) : null;
+        if (corpus != null && boxSize != DEFAULT_BOX_SIZE) {
+            corpus.close();
+            System.err.println("-box only works with text input, packed puzzles are always 9x9.");
+            System.exit(1);
+        }
+        final BufferedReader in = corpus != null ? null
+                : new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "US-ASCII"), 1 << 16);
+        final Writer out = new BufferedWriter(outputFile == null ? new OutputStreamWriter(System.out, "US-ASCII")
+                : new OutputStreamWriter(new FileOutputStream(outputFile), "US-ASCII"), 1 << 16);
+
+        try {
+            final BatchSolver batchSolver = new BatchSolver(threadCount, branchStrategy);
+            batchSolver.setCheckUniqueness(checkUniqueness);
+            batchSolver.setCollectStatistics(collectStatistics);
+            batchSolver.setDisabledTechniques(disabledTechniques);
+            batchSolver.setLimits(maxDurationMillis, maxNodeCount);
+            batchSolver.setCacheSize(cacheSize);
+            batchSolver.setBoxSize(boxSize);
+            final Statistics statistics = corpus != null ? batchSolver.run(corpus, out) : batchSolver.run(in, out);
+            System.err.println(statistics);
+        } finally {
+            if (corpus != null) {
+                corpus.close();
+            } else {
+                in.close();
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package be.simonraes.sudokusolver.headless;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts a text puzzle file (one 81 character puzzle per line) to the PackedPuzzleFormat, or back with -unpack.
+ * Empty lines are skipped, invalid lines are skipped and counted.
+ * Usage: PackedConverter [-unpack] input output
+ */
+public class PackedConverter {
+
+    private static final int BUFFER_RECORDS = 4096;
+
+    private PackedConverter() {
+    }
+
+    /**
+     * Packs every valid line of the input.
+     *
+     * @return the number of invalid lines that were skipped.
+     */
+    public static long pack(final BufferedReader in, final OutputStream out) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * PackedPuzzleFormat.RECORD_SIZE);
+        final int[] cells = new int[PuzzleFormat.LENGTH];
+        long invalidCount = 0;
+
+        PackedPuzzleFormat.putFileHeader(buffer);
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().length() == 0) {
+                continue;
+            }
+            if (!PuzzleFormat.parse(line, cells)) {
+                invalidCount++;
+                continue;
+            }
+
+            if (buffer.remaining() < PackedPuzzleFormat.RECORD_SIZE) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            PackedPuzzleFormat.putRecord(cells, buffer);
+        }
+
+        out.write(buffer.array(), 0, buffer.position());
+        out.flush();
+        return invalidCount;
+    }
+
+    /**
+     * Writes every record of the corpus as a text line, invalid records as BatchSolver.INVALID_INPUT.
+     */
+    public static void unpack(final PackedCorpus corpus, final Writer out) throws IOException {
+        final StringBuilder line = new StringBuilder(PuzzleFormat.LENGTH + 1);
+        final int[] cells = new int[PuzzleFormat.LENGTH];
+
+        for (long i = 0; i < corpus.getRecordCount(); i++) {
+            line.setLength(0);
+            if (corpus.read(i, cells)) {
+                PuzzleFormat.append(cells, line);
+            } else {
+                line.append(BatchSolver.INVALID_INPUT);
+            }
+            out.append(line).append('\n');
+        }
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean unpack = false;
+        String inputFile = null;
+        String outputFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-unpack")) {
+                unpack = true;
+            } else if (inputFile == null) {
+                inputFile = args[i];
+            } else {
+                outputFile = args[i];
+            }
+        }
+
+        if (outputFile == null) {
+            System.err.println("Usage: PackedConverter [-unpack] input output");
+            System.exit(1);
+        }
+
+        if (unpack) {
+            final PackedCorpus corpus = new PackedCorpus(new File(inputFile));
+            final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "US-ASCII"), 1 << 16);
+            try {
+                unpack(corpus, out);
+                System.err.println("Unpacked " + corpus.getRecordCount() + " puzzles");
+            } finally {
+                corpus.close();
+                out.close();
+            }
+        } else {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "US-ASCII"), 1 << 16);
+            final OutputStream out = new FileOutputStream(outputFile);
+            try {
+                final long invalidCount = pack(in, out);
+                System.err.println("Packed " + inputFile + ", " + invalidCount + " invalid lines skipped");
+            } finally {
+                in.close();
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package be.simonraes.sudokusolver.headless;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps a file in the PackedPuzzleFormat and decodes records straight from the mapping into a board supplied
+ * by the caller, so reading a puzzle doesn't copy the file or allocate anything. Files above 2 GB are mapped in
+ * several segments of whole records.
+ * Safe to read from several threads at once, every read uses absolute offsets only.
+ * The mappings stay valid until they are garbage collected, also after close.
+ */
+public class PackedCorpus implements Closeable {
+
+    // Largest multiple of the record size that fits in one mapping.
+    private static final long SEGMENT_RECORDS = (Integer.MAX_VALUE - PackedPuzzleFormat.FILE_HEADER_SIZE)
+            / PackedPuzzleFormat.RECORD_SIZE;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer[] segments;
+    private final long recordCount;
+
+    /**
+     * @throws IOException if the file doesn't start with a supported header or ends in a partial record.
+     */
+    public PackedCorpus(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            final long dataSize = size - PackedPuzzleFormat.FILE_HEADER_SIZE;
+
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, PackedPuzzleFormat.FILE_HEADER_SIZE));
+            if (!PackedPuzzleFormat.hasFileHeader(header) || dataSize % PackedPuzzleFormat.RECORD_SIZE != 0) {
+                throw new IOException(path + " is not a packed puzzle file");
+            }
+
+            recordCount = dataSize / PackedPuzzleFormat.RECORD_SIZE;
+            segments = new MappedByteBuffer[(int) ((recordCount + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+
+            for (int i = 0; i < segments.length; i++) {
+                final long first = i * SEGMENT_RECORDS;
+                final long count = Math.min(SEGMENT_RECORDS, recordCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        PackedPuzzleFormat.FILE_HEADER_SIZE + first * PackedPuzzleFormat.RECORD_SIZE,
+                        count * PackedPuzzleFormat.RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Decodes a record into the supplied flat board (index = x * 9 + y).
+     *
+     * @return false if the record holds a cell value above 9.
+     */
+    public boolean read(final long index, final int[] cells) {
+        return PackedPuzzleFormat.getRecord(segments[(int) (index / SEGMENT_RECORDS)],
+                (int) (index % SEGMENT_RECORDS) * PackedPuzzleFormat.RECORD_SIZE, cells);
+    }
+
+    /**
+     * Returns the clue count from the record header without decoding the cells.
+     */
+    public int getClueCount(final long index) {
+        return PackedPuzzleFormat.getClueCount(segments[(int) (index / SEGMENT_RECORDS)],
+                (int) (index % SEGMENT_RECORDS) * PackedPuzzleFormat.RECORD_SIZE);
+    }
+
+    /**
+     * Returns true if the file starts with a packed puzzle header, so a tool can accept both formats.
+     */
+    public static boolean isPacked(File path) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "r");
+
+        try {
+            final byte[] header = new byte[PackedPuzzleFormat.FILE_HEADER_SIZE];
+            if (file.length() < header.length) {
+                return false;
+            }
+            file.readFully(header);
+            return PackedPuzzleFormat.hasFileHeader(ByteBuffer.wrap(header));
+        } finally {
+            file.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,101 @@
+package be.simonraes.sudokusolver.headless;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary puzzle format, about half the size of the text format and decoded without any parsing.
+ * A file starts with a FILE_HEADER_SIZE byte header: the MAGIC bytes, the format VERSION and the record size, both as
+ * big endian ints. Then follow the records of RECORD_SIZE bytes each:
+ * - a 4 byte big endian record header, the low byte holds the clue count, the other bits are reserved and 0.
+ * - 41 bytes with the 81 cells in row-major order, 4 bits per cell, the first cell in the high nibble. 0 is empty.
+ *   The low nibble of the last byte is 0.
+ */
+public class PackedPuzzleFormat {
+
+    public static final byte[] MAGIC = {'S', 'U', 'D', 'O', 'K', 'U', 'P', 'K'};
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_SIZE = MAGIC.length + 8;
+
+    public static final int RECORD_HEADER_SIZE = 4;
+    public static final int CELL_BYTES = (PuzzleFormat.LENGTH + 1) / 2;
+    public static final int RECORD_SIZE = RECORD_HEADER_SIZE + CELL_BYTES;
+
+    private static final int CLUE_COUNT_MASK = 0xFF;
+
+    private PackedPuzzleFormat() {
+    }
+
+    /**
+     * Writes the file header at the current position of the buffer.
+     */
+    public static void putFileHeader(final ByteBuffer buffer) {
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(RECORD_SIZE);
+    }
+
+    /**
+     * Returns true if the buffer starts with a file header this version can read, the position is left untouched.
+     */
+    public static boolean hasFileHeader(final ByteBuffer buffer) {
+        if (buffer.limit() < FILE_HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return buffer.getInt(MAGIC.length) == VERSION && buffer.getInt(MAGIC.length + 4) == RECORD_SIZE;
+    }
+
+    /**
+     * Writes one record for the supplied flat board (index = x * 9 + y) at the current position of the buffer.
+     */
+    public static void putRecord(final int[] cells, final ByteBuffer buffer) {
+        int clueCount = 0;
+        for (int i = 0; i < PuzzleFormat.LENGTH; i++) {
+            if (cells[i] != 0) {
+                clueCount++;
+            }
+        }
+        buffer.putInt(clueCount);
+
+        for (int i = 0; i < PuzzleFormat.LENGTH; i += 2) {
+            final int low = i + 1 < PuzzleFormat.LENGTH ? cells[i + 1] : 0;
+            buffer.put((byte) (cells[i] << 4 | low));
+        }
+    }
+
+    /**
+     * Decodes the record at the supplied absolute offset without moving the buffer position.
+     *
+     * @return false if a cell holds a value above 9.
+     */
+    public static boolean getRecord(final ByteBuffer buffer, final int offset, final int[] cells) {
+        final int start = offset + RECORD_HEADER_SIZE;
+        int invalid = 0;
+
+        for (int i = 0; i < CELL_BYTES - 1; i++) {
+            final int packed = buffer.get(start + i) & 0xFF;
+            final int high = packed >>> 4;
+            final int low = packed & 0x0F;
+            cells[i * 2] = high;
+            cells[i * 2 + 1] = low;
+            // Adding 6 carries a value above 9 into bit 4, so one check at the end covers every cell.
+            invalid |= (high + 6) | (low + 6);
+        }
+        final int last = (buffer.get(start + CELL_BYTES - 1) & 0xFF) >>> 4;
+        cells[PuzzleFormat.LENGTH - 1] = last;
+        invalid |= last + 6;
+
+        return (invalid & 0x10) == 0;
+    }
+
+    /**
+     * Returns the clue count from the header of the record at the supplied absolute offset.
+     */
+    public static int getClueCount(final ByteBuffer buffer, final int offset) {
+        return buffer.getInt(offset) & CLUE_COUNT_MASK;
+    }
+}
@@ -0,0 +1,191 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.FasterSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves a single puzzle on several cores. The top levels of the FasterSolver search tree are split into fork/join
+ * tasks, below the split depth every task runs the sequential search on a solver owned by its worker thread.
+ * Not used by the app, ForkJoinPool is only available from Android API 21. ParallelSolverBenchmark compares it with the
+ * sequential solver.
+ */
+public class ParallelSolver {
+
+    private static final int DEFAULT_SPLIT_DEPTH = 4;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final FasterSolver.BranchStrategy branchStrategy;
+    private final boolean deterministic;
+
+    private final ThreadLocal<TaskSolver> solvers = new ThreadLocal<TaskSolver>() {
+        @Override
+        protected TaskSolver initialValue() {
+            return new TaskSolver(branchStrategy);
+        }
+    };
+
+    private long nodeCount;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH, FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES, true);
+    }
+
+    /**
+     * @param splitDepth    number of guess levels that are split into separate tasks.
+     * @param deterministic if true the solution of the first branch in search order is returned, which is the same
+     *                      solution the sequential FasterSolver finds. Branches further down the search order are
+     *                      cancelled once an earlier one succeeds. If false the first branch to find any solution
+     *                      wins and cancels all others. Both modes agree on puzzles with a unique solution.
+     */
+    public ParallelSolver(ForkJoinPool pool, int splitDepth, FasterSolver.BranchStrategy branchStrategy, boolean deterministic) {
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+        this.branchStrategy = branchStrategy;
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Solves the supplied flat board (index = x * 9 + y) in place. Empty cells are 0.
+     *
+     * @return true if a solution was found.
+     */
+    public boolean solve(final int[] cells) {
+        final Search search = new Search();
+        final int[] result = pool.invoke(new SearchTask(search, null, cells.clone(), 0));
+        final int[] solution = deterministic ? result : search.firstSolution.get();
+
+        nodeCount = search.nodeCount.get();
+
+        if (solution == null) {
+            return false;
+        }
+
+        System.arraycopy(solution, 0, cells, 0, cells.length);
+        return true;
+    }
+
+    /**
+     * Returns the number of guesses made by all tasks during the last solve.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * State shared by all tasks of one solve.
+     */
+    private static class Search {
+        final AtomicReference<int[]> firstSolution = new AtomicReference<int[]>();
+        final AtomicLong nodeCount = new AtomicLong();
+    }
+
+    private class SearchTask extends RecursiveTask<int[]> {
+
+        private final Search search;
+        private final SearchTask parent;
+        private final int[] cells;
+        private final int depth;
+        private volatile boolean cancelled;
+
+        SearchTask(Search search, SearchTask parent, int[] cells, int depth) {
+            this.search = search;
+            this.parent = parent;
+            this.cells = cells;
+            this.depth = depth;
+        }
+
+        boolean isStopped() {
+            if (cancelled || (!deterministic && search.firstSolution.get() != null)) {
+                return true;
+            }
+            return parent != null && parent.isStopped();
+        }
+
+        @Override
+        protected int[] compute() {
+            if (isStopped()) {
+                return null;
+            }
+
+            final TaskSolver solver = solvers.get();
+
+            if (depth >= splitDepth) {
+                solver.task = this;
+                try {
+                    return solver.solve(cells) ? found(cells) : null;
+                } catch (CalculationTimeOutException e) {
+                    // The task solvers don't have any limits set.
+                    throw new IllegalStateException(e);
+                } finally {
+                    solver.task = null;
+                    search.nodeCount.addAndGet(solver.getNodeCount());
+                }
+            }
+
+            if (!solver.propagate(cells)) {
+                return null;
+            }
+
+            final int cell = solver.selectBranchCell();
+            if (cell < 0) {
+                return found(cells);
+            }
+
+            final List<SearchTask> children = new ArrayList<SearchTask>();
+            for (int candidates = solver.getAllowedValues(cell); candidates != 0; candidates &= candidates - 1) {
+                final int[] childCells = cells.clone();
+                childCells[cell] = Integer.numberOfTrailingZeros(candidates) + 1;
+                children.add(new SearchTask(search, this, childCells, depth + 1));
+            }
+            search.nodeCount.addAndGet(children.size());
+
+            // Fork in reverse so this thread picks up the first branch itself, idle workers steal the others.
+            for (int i = children.size() - 1; i >= 0; i--) {
+                children.get(i).fork();
+            }
+
+            for (int i = 0; i < children.size(); i++) {
+                final int[] result = children.get(i).join();
+
+                if (result != null) {
+                    for (int j = i + 1; j < children.size(); j++) {
+                        children.get(j).cancelled = true;
+                    }
+                    return result;
+                }
+            }
+
+            return null;
+        }
+
+        private int[] found(int[] solution) {
+            search.firstSolution.compareAndSet(null, solution);
+            return solution;
+        }
+    }
+
+    /**
+     * Solver reused by every task that runs on the same worker thread.
+     */
+    private static class TaskSolver extends FasterSolver {
+
+        SearchTask task;
+
+        TaskSolver(BranchStrategy branchStrategy) {
+            super(branchStrategy);
+        }
+
+        @Override
+        protected boolean isCancelled() {
+            return task != null && task.isStopped();
+        }
+    }
+}
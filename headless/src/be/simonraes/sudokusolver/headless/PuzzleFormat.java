@@ -0,0 +1,92 @@
+package be.simonraes.sudokusolver.headless;
+
+/**
+ * Reads and writes the common one-line puzzle format: 81 characters in row-major order,
+ * digits 1-9 for givens and '0' or '.' for empty cells.
+ * Bigger grids use one character per cell as well, digits above 9 continue with A-Z, a-z and then @, # and $.
+ */
+public class PuzzleFormat {
+
+    public static final int LENGTH = 81;
+
+    // Digit v is written as SYMBOLS.charAt(v - 1), enough for the 64 digits of the largest GeneralizedSolver grid.
+    public static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz@#$";
+
+    private PuzzleFormat() {
+    }
+
+    /**
+     * Parses the first 81 characters of a line into a flat board (index = x * 9 + y).
+     *
+     * @return false if the line is too short or contains an unknown character.
+     */
+    public static boolean parse(final CharSequence line, final int[] cells) {
+        if (line.length() < LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < LENGTH; i++) {
+            final char c = line.charAt(i);
+
+            if (c >= '1' && c <= '9') {
+                cells[i] = c - '0';
+            } else if (c == '0' || c == '.') {
+                cells[i] = 0;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a board as 81 characters, empty cells are written as '.'.
+     */
+    public static void append(final int[] cells, final StringBuilder builder) {
+        for (int i = 0; i < LENGTH; i++) {
+            builder.append(cells[i] == 0 ? '.' : (char) ('0' + cells[i]));
+        }
+    }
+
+    /**
+     * Parses the first size * size characters of a line into a flat board (index = x * size + y).
+     *
+     * @return false if the line is too short or contains a character that isn't a digit of this size.
+     */
+    public static boolean parse(final CharSequence line, final int[] cells, final int size) {
+        final int length = size * size;
+        if (line.length() < length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            final char c = line.charAt(i);
+
+            if (c == '0' || c == '.') {
+                cells[i] = 0;
+            } else {
+                final int value = SYMBOLS.indexOf(c) + 1;
+                if (value == 0 || value > size) {
+                    return false;
+                }
+                cells[i] = value;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a board of the given size as size * size characters, empty cells are written as '.'.
+     */
+    public static void append(final int[] cells, final int size, final StringBuilder builder) {
+        for (int i = 0; i < size * size; i++) {
+            builder.append(cells[i] == 0 ? '.' : SYMBOLS.charAt(cells[i] - 1));
+        }
+    }
+
+    public static String format(final int[] cells) {
+        final StringBuilder builder = new StringBuilder(LENGTH);
+        append(cells, builder);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,412 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.FasterSolver;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Solves puzzles over HTTP on localhost, built on the JDK's own HttpServer.
+ * POST /solve with one or more puzzles in the body (81 characters each, separated by whitespace) answers with one
+ * line per puzzle, the same lines BatchSolver writes.
+ * Every request runs on its own virtual thread when the JVM has them (Java 21), otherwise on a plain thread. The
+ * request threads only parse and wait: the puzzles of all requests go into one queue and a fixed pool of solver
+ * workers, each with its own FasterSolver, takes them out in batches of whatever is waiting, up to the batch size.
+ * Requests beyond the request limit, or whose puzzles don't fit in the queue limit, get 503 right away instead of
+ * waiting in an ever growing queue. A request with more puzzles than the whole queue can hold gets 413.
+ * Usage: SolveServer [-port n] [-threads n] [-batch n] [-max-requests n] [-max-queued n] [-max-puzzles n]
+ * [-timeout ms] [-nodes n]
+ */
+public class SolveServer {
+
+    public static final String PATH = "/solve";
+    public static final String SOLVER_ERROR = "solver error";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int DEFAULT_MAX_REQUESTS = 256;
+    private static final int DEFAULT_MAX_QUEUED = 16384;
+    private static final int DEFAULT_MAX_PUZZLES = 4096;
+
+    private final int threadCount;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxQueuedPuzzles = DEFAULT_MAX_QUEUED;
+    private int maxPuzzlesPerRequest = DEFAULT_MAX_PUZZLES;
+    private long maxDurationMillis;
+    private long maxNodeCount;
+
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    private boolean virtualThreads;
+    private Thread[] workers;
+    private Semaphore requestPermits;
+    private Semaphore queuePermits;
+    private final BlockingQueue<Item> queue = new LinkedBlockingQueue<Item>();
+
+    public SolveServer(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Most puzzles a worker takes from the queue at once.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Requests that can be handled at the same time, further ones get 503.
+     */
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * Puzzles that can wait for a worker at the same time, a request that doesn't fit gets 503, or 413 if it holds
+     * more valid puzzles than this.
+     */
+    public void setMaxQueuedPuzzles(int maxQueuedPuzzles) {
+        this.maxQueuedPuzzles = maxQueuedPuzzles;
+    }
+
+    /**
+     * Puzzles a single request may hold, a larger request gets 413.
+     */
+    public void setMaxPuzzlesPerRequest(int maxPuzzlesPerRequest) {
+        this.maxPuzzlesPerRequest = maxPuzzlesPerRequest;
+    }
+
+    /**
+     * Limits every single puzzle, see FasterSolver.setLimits.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param port 0 to pick a free port, see getPort.
+     */
+    public void start(int port) throws IOException {
+        requestPermits = new Semaphore(maxRequests);
+        queuePermits = new Semaphore(maxQueuedPuzzles);
+        requestExecutor = createRequestExecutor();
+
+        workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Thread(new Worker(), "SolveServer-solve-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxRequests);
+        server.createContext(PATH, new SolveHandler());
+        server.setExecutor(requestExecutor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns true if requests run on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor is looked up at runtime, the tools are built for Java 8.
+     */
+    private ExecutorService createRequestExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            final ExecutorService executor = (ExecutorService) method.invoke(null);
+            virtualThreads = true;
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            virtualThreads = false;
+            // Before Java 21. The request limit keeps the number of threads in check.
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "SolveServer-request");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * The puzzles of one request and their answers.
+     */
+    private static class Request {
+        final String[] results;
+        final CountDownLatch remaining;
+
+        Request(int puzzleCount, int queuedCount) {
+            results = new String[puzzleCount];
+            remaining = new CountDownLatch(queuedCount);
+        }
+    }
+
+    /**
+     * One queued puzzle.
+     */
+    private static class Item {
+        final Request request;
+        final int index;
+        final int[] cells;
+
+        Item(Request request, int index, int[] cells) {
+            this.request = request;
+            this.index = index;
+            this.cells = cells;
+        }
+    }
+
+    private class SolveHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals("POST")) {
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    respond(exchange, 405, "Use POST\n");
+                    return;
+                }
+
+                if (!requestPermits.tryAcquire()) {
+                    respondBusy(exchange);
+                    return;
+                }
+
+                try {
+                    handleSolve(exchange);
+                } finally {
+                    requestPermits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "Shutting down\n");
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void handleSolve(final HttpExchange exchange) throws IOException, InterruptedException {
+            // Room for the puzzles, a line break each and some stray whitespace.
+            final byte[] body = readBody(exchange.getRequestBody(), maxPuzzlesPerRequest * (PuzzleFormat.LENGTH + 2));
+            if (body == null) {
+                respond(exchange, 413, "At most " + maxPuzzlesPerRequest + " puzzles per request\n");
+                return;
+            }
+
+            final String[] tokens = new String(body, "US-ASCII").trim().split("\\s+");
+            if (tokens.length == 0 || tokens[0].length() == 0) {
+                respond(exchange, 400, "No puzzles in the request body\n");
+                return;
+            }
+            if (tokens.length > maxPuzzlesPerRequest) {
+                respond(exchange, 413, "At most " + maxPuzzlesPerRequest + " puzzles per request\n");
+                return;
+            }
+
+            final List<int[]> boards = new ArrayList<int[]>(tokens.length);
+            for (String token : tokens) {
+                final int[] cells = new int[PuzzleFormat.LENGTH];
+                boards.add(token.length() == PuzzleFormat.LENGTH && PuzzleFormat.parse(token, cells) ? cells : null);
+            }
+
+            int queuedCount = 0;
+            for (int[] cells : boards) {
+                if (cells != null) {
+                    queuedCount++;
+                }
+            }
+
+            // Such a request would never fit, retrying wouldn't help.
+            if (queuedCount > maxQueuedPuzzles) {
+                respond(exchange, 413, "At most " + maxQueuedPuzzles + " valid puzzles per request\n");
+                return;
+            }
+            if (!queuePermits.tryAcquire(queuedCount)) {
+                respondBusy(exchange);
+                return;
+            }
+
+            final Request request = new Request(boards.size(), queuedCount);
+            for (int i = 0; i < boards.size(); i++) {
+                if (boards.get(i) == null) {
+                    request.results[i] = BatchSolver.INVALID_INPUT;
+                } else {
+                    queue.add(new Item(request, i, boards.get(i)));
+                }
+            }
+            request.remaining.await();
+
+            final StringBuilder response = new StringBuilder(boards.size() * (PuzzleFormat.LENGTH + 1));
+            for (String result : request.results) {
+                response.append(result).append('\n');
+            }
+            respond(exchange, 200, response.toString());
+        }
+
+        private void respondBusy(final HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "Too many puzzles in progress, try again later\n");
+        }
+
+        private void respond(final HttpExchange exchange, final int status, final String text) throws IOException {
+            final byte[] bytes = text.getBytes("US-ASCII");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+            exchange.sendResponseHeaders(status, bytes.length);
+            final OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        /**
+         * @return null if the body is longer than the limit.
+         */
+        private byte[] readBody(final InputStream in, final int limit) throws IOException {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream(Math.min(limit, 1 << 16));
+            final byte[] buffer = new byte[1 << 13];
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > limit) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+            return body.toByteArray();
+        }
+    }
+
+    /**
+     * Takes the waiting puzzles out of the queue in batches and solves them.
+     */
+    private class Worker implements Runnable {
+
+        private final FasterSolver solver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES);
+        private final List<Item> batch = new ArrayList<Item>(batchSize);
+        private final StringBuilder line = new StringBuilder(PuzzleFormat.LENGTH);
+
+        Worker() {
+            solver.setLimits(maxDurationMillis, maxNodeCount);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    queuePermits.release(batch.size());
+
+                    for (Item item : batch) {
+                        // A request waits for every one of its puzzles, so each one has to be answered.
+                        try {
+                            item.request.results[item.index] = solve(item.cells);
+                        } catch (RuntimeException e) {
+                            System.err.println("SolveServer: solve failed: " + e);
+                            item.request.results[item.index] = SOLVER_ERROR;
+                        } finally {
+                            item.request.remaining.countDown();
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // Stopped.
+            }
+        }
+
+        private String solve(final int[] cells) {
+            try {
+                if (!solver.solve(cells)) {
+                    return BatchSolver.NO_SOLUTION;
+                }
+            } catch (CalculationTimeOutException e) {
+                return BatchSolver.TIMED_OUT;
+            }
+
+            line.setLength(0);
+            PuzzleFormat.append(cells, line);
+            return line.toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int maxRequests = DEFAULT_MAX_REQUESTS;
+        int maxQueuedPuzzles = DEFAULT_MAX_QUEUED;
+        int maxPuzzlesPerRequest = DEFAULT_MAX_PUZZLES;
+        long maxDurationMillis = 0;
+        long maxNodeCount = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-batch") && i + 1 < args.length) {
+                batchSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-max-requests") && i + 1 < args.length) {
+                maxRequests = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-max-queued") && i + 1 < args.length) {
+                maxQueuedPuzzles = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-max-puzzles") && i + 1 < args.length) {
+                maxPuzzlesPerRequest = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                maxDurationMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-nodes") && i + 1 < args.length) {
+                maxNodeCount = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Usage: SolveServer [-port n] [-threads n] [-batch n] [-max-requests n]"
+                        + " [-max-queued n] [-max-puzzles n] [-timeout ms] [-nodes n]");
+                System.exit(1);
+            }
+        }
+
+        final SolveServer server = new SolveServer(threadCount);
+        server.setBatchSize(batchSize);
+        server.setMaxRequests(maxRequests);
+        server.setMaxQueuedPuzzles(maxQueuedPuzzles);
+        server.setMaxPuzzlesPerRequest(maxPuzzlesPerRequest);
+        server.setLimits(maxDurationMillis, maxNodeCount);
+        server.start(port);
+
+        System.err.println("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort() + PATH + " with " + threadCount + " solver threads, requests on "
+                + (server.usesVirtualThreads() ? "virtual threads" : "platform threads"));
+    }
+}
@@ -0,0 +1,332 @@
+package be.simonraes.sudokusolver.headless;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.FasterSolver;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves puzzles from stdin to stdout, for use in a pipeline such as "cat puzzles | StreamSolver | sort".
+ * A parse thread reads and parses lines into batches of boards, a number of solve workers each run their own
+ * FasterSolver and the calling thread writes the results. The stages are connected by bounded queues and at most a
+ * fixed number of batches is in flight, so memory stays bounded on endless input. In ordered mode the output is in
+ * input order, a batch that is done early waits for the ones before it. In unordered mode every batch is written as
+ * soon as it is solved.
+ * The output is flushed after every batch. A batch is also cut short when no more input is ready, so a line typed
+ * into an interactive pipe is answered right away.
+ * Output lines are the same as those of BatchSolver.
+ * Usage: StreamSolver [-threads n] [-batch n] [-unordered] [-strategy first|mrv] [-timeout ms] [-nodes n]
+ */
+public class StreamSolver {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final int threadCount;
+    private final FasterSolver.BranchStrategy branchStrategy;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean ordered = true;
+    private long maxDurationMillis;
+    private long maxNodeCount;
+
+    public StreamSolver(int threadCount, FasterSolver.BranchStrategy branchStrategy) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threadCount);
+        }
+        this.threadCount = threadCount;
+        this.branchStrategy = branchStrategy;
+    }
+
+    /**
+     * Number of puzzles per batch, the output is flushed after every batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * If disabled, batches are written in the order they are solved.
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Limits every single puzzle, see FasterSolver.setLimits.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * A block of puzzles on its way through the stages. A batch of size 0 marks the end of the input.
+     */
+    private static class Batch {
+        final long sequence;
+        final int size;
+        // Boards one after the other, index = puzzle * 81 + x * 9 + y.
+        final int[] cells;
+        final boolean[] valid;
+        int count;
+        final StringBuilder output;
+        int solvedCount;
+        long nodeCount;
+
+        Batch(long sequence, int size) {
+            this.sequence = sequence;
+            this.size = size;
+            this.cells = new int[size * PuzzleFormat.LENGTH];
+            this.valid = new boolean[size];
+            this.output = new StringBuilder(size * (PuzzleFormat.LENGTH + 1));
+        }
+
+        boolean isEnd() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * Runs the pipeline until the input ends and writes every result.
+     */
+    public BatchSolver.Statistics run(final BufferedReader in, final Writer out) throws IOException {
+        // Batches between the parse and the write stage: queued, being solved, solved or waiting for their turn.
+        final int maxBatchesInFlight = threadCount * 4;
+        final Semaphore batchPermits = new Semaphore(maxBatchesInFlight);
+        final BlockingQueue<Batch> solveQueue = new ArrayBlockingQueue<Batch>(maxBatchesInFlight + threadCount);
+        final BlockingQueue<Batch> writeQueue = new ArrayBlockingQueue<Batch>(maxBatchesInFlight + threadCount);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final BatchSolver.Statistics statistics = new BatchSolver.Statistics();
+        final long startTime = System.nanoTime();
+
+        final Thread parser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    parse(in, batchPermits, solveQueue);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    for (int i = 0; i < threadCount; i++) {
+                        solveQueue.add(new Batch(-1, 0));
+                    }
+                }
+            }
+        }, "StreamSolver-parse");
+
+        final Thread[] workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        solveBatches(solveQueue, writeQueue);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        writeQueue.add(new Batch(-1, 0));
+                    }
+                }
+            }, "StreamSolver-solve-" + (i + 1));
+        }
+
+        parser.setDaemon(true);
+        parser.start();
+        for (Thread worker : workers) {
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        try {
+            write(writeQueue, batchPermits, failure, out, statistics);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            parser.interrupt();
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new IOException(failure.get());
+        }
+        statistics.durationNanos = System.nanoTime() - startTime;
+        return statistics;
+    }
+
+    private void parse(final BufferedReader in, final Semaphore batchPermits, final BlockingQueue<Batch> solveQueue)
+            throws IOException, InterruptedException {
+        final int[] cells = new int[PuzzleFormat.LENGTH];
+        long sequence = 0;
+        Batch batch = null;
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            if (line.trim().length() == 0) {
+                continue;
+            }
+
+            if (batch == null) {
+                batchPermits.acquire();
+                batch = new Batch(sequence++, batchSize);
+            }
+            batch.valid[batch.count] = PuzzleFormat.parse(line, cells);
+            System.arraycopy(cells, 0, batch.cells, batch.count * PuzzleFormat.LENGTH, PuzzleFormat.LENGTH);
+            batch.count++;
+
+            if (batch.count == batchSize || !in.ready()) {
+                solveQueue.put(batch);
+                batch = null;
+            }
+        }
+
+        if (batch != null) {
+            solveQueue.put(batch);
+        }
+    }
+
+    private void solveBatches(final BlockingQueue<Batch> solveQueue, final BlockingQueue<Batch> writeQueue)
+            throws InterruptedException {
+        final FasterSolver solver = new FasterSolver(branchStrategy);
+        solver.setLimits(maxDurationMillis, maxNodeCount);
+        final int[] cells = new int[PuzzleFormat.LENGTH];
+
+        while (true) {
+            final Batch batch = solveQueue.take();
+            if (batch.isEnd()) {
+                return;
+            }
+
+            for (int i = 0; i < batch.count; i++) {
+                System.arraycopy(batch.cells, i * PuzzleFormat.LENGTH, cells, 0, PuzzleFormat.LENGTH);
+                try {
+                    if (!batch.valid[i]) {
+                        batch.output.append(BatchSolver.INVALID_INPUT);
+                    } else if (solver.solve(cells)) {
+                        PuzzleFormat.append(cells, batch.output);
+                        batch.solvedCount++;
+                    } else {
+                        batch.output.append(BatchSolver.NO_SOLUTION);
+                    }
+                } catch (CalculationTimeOutException e) {
+                    batch.output.append(BatchSolver.TIMED_OUT);
+                }
+                batch.output.append('\n');
+                if (batch.valid[i]) {
+                    batch.nodeCount += solver.getNodeCount();
+                }
+            }
+
+            writeQueue.put(batch);
+        }
+    }
+
+    /**
+     * Writes until every worker is done, or stops early once a stage failed.
+     */
+    private void write(final BlockingQueue<Batch> writeQueue, final Semaphore batchPermits,
+                       final AtomicReference<Throwable> failure, final Writer out,
+                       final BatchSolver.Statistics statistics) throws IOException, InterruptedException {
+        // Solved batches that came in before their turn, only used in ordered mode.
+        final Map<Long, Batch> waiting = new HashMap<Long, Batch>();
+        long nextSequence = 0;
+        int runningWorkers = threadCount;
+
+        while (runningWorkers > 0) {
+            Batch batch = writeQueue.take();
+            if (batch.isEnd()) {
+                // A failed worker lost its batch, in ordered mode the batches after it would wait forever.
+                if (failure.get() != null) {
+                    return;
+                }
+                runningWorkers--;
+                continue;
+            }
+
+            if (!ordered) {
+                writeBatch(batch, batchPermits, out, statistics);
+                continue;
+            }
+
+            waiting.put(batch.sequence, batch);
+            while ((batch = waiting.remove(nextSequence)) != null) {
+                writeBatch(batch, batchPermits, out, statistics);
+                nextSequence++;
+            }
+        }
+    }
+
+    private void writeBatch(final Batch batch, final Semaphore batchPermits, final Writer out,
+                            final BatchSolver.Statistics statistics) throws IOException {
+        out.write(batch.output.toString());
+        out.flush();
+        statistics.puzzleCount += batch.count;
+        statistics.solvedCount += batch.solvedCount;
+        statistics.nodeCount += batch.nodeCount;
+        batchPermits.release();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        FasterSolver.BranchStrategy branchStrategy = FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        boolean ordered = true;
+        long maxDurationMillis = 0;
+        long maxNodeCount = 0;
+        boolean validArguments = true;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-batch") && i + 1 < args.length) {
+                batchSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-unordered")) {
+                ordered = false;
+            } else if (args[i].equals("-strategy") && i + 1 < args.length) {
+                branchStrategy = args[++i].equals("first") ? FasterSolver.BranchStrategy.FIRST_EMPTY_CELL
+                        : FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                maxDurationMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-nodes") && i + 1 < args.length) {
+                maxNodeCount = Long.parseLong(args[++i]);
+            } else {
+                validArguments = false;
+            }
+        }
+
+        if (!validArguments || threadCount < 1 || batchSize < 1) {
+            System.err.println("Usage: StreamSolver [-threads n] [-batch n] [-unordered] [-strategy first|mrv]"
+                    + " [-timeout ms] [-nodes n]");
+            System.err.println("-threads and -batch must be at least 1.");
+            System.exit(1);
+        }
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "US-ASCII"), 1 << 16);
+        // Not System.out, a PrintStream swallows the error when the next command in the pipe closes early.
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                "US-ASCII"), 1 << 16);
+
+        final StreamSolver streamSolver = new StreamSolver(threadCount, branchStrategy);
+        streamSolver.setBatchSize(batchSize);
+        streamSolver.setOrdered(ordered);
+        streamSolver.setLimits(maxDurationMillis, maxNodeCount);
+
+        try {
+            final BatchSolver.Statistics statistics = streamSolver.run(in, out);
+            System.err.println(statistics);
+        } catch (IOException e) {
+            System.err.println("StreamSolver stopped: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
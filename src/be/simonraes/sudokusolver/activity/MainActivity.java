@@ -11,7 +11,8 @@ import be.simonraes.sudokusolver.R;
 import be.simonraes.sudokusolver.fragment.DataFragment;
 import be.simonraes.sudokusolver.fragment.NumpadFragment;
 import be.simonraes.sudokusolver.fragment.SudokuViewFragment;
-import be.simonraes.sudokusolver.model.GridValue;
+import be.simonraes.sudokusolver.model.SudokuBoard;
+import be.simonraes.sudokusolver.model.SpeculativeSolver;
 
 public class MainActivity extends FragmentActivity implements NumpadFragment.numPadDelegate, DataFragment.DataFragmentDelegate {
 
@@ -122,7 +123,7 @@ public class MainActivity extends FragmentActivity implements NumpadFragment.num
     }
 
     @Override
-    public void updateValues(GridValue[][] values) {
+    public void updateValues(SudokuBoard values) {
         sudokuViewFragment.setValues(values);
     }
 
@@ -140,4 +141,34 @@ public class MainActivity extends FragmentActivity implements NumpadFragment.num
     public int getSelectedY() {
         return sudokuViewFragment.getSelectedY();
     }
+
+    /**
+     * Shows the outcome of the background solve under the title.
+     */
+    @Override
+    public void updateSolvability(SpeculativeSolver.Verdict verdict) {
+        if (getActionBar() == null) {
+            return;
+        }
+
+        if (verdict == null) {
+            getActionBar().setSubtitle(null);
+            return;
+        }
+
+        switch (verdict) {
+            case UNIQUE:
+                getActionBar().setSubtitle(R.string.solvable);
+                break;
+            case MULTIPLE:
+                getActionBar().setSubtitle(R.string.multipleSolutions);
+                break;
+            case NONE:
+                getActionBar().setSubtitle(R.string.unsolvable);
+                break;
+            case TIMED_OUT:
+                getActionBar().setSubtitle(R.string.solvabilityUnknown);
+                break;
+        }
+    }
 }
@@ -1,31 +1,40 @@
 package be.simonraes.sudokusolver.fragment;
 
 import android.app.Activity;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
-import be.simonraes.sudokusolver.model.ASyncBackTrackSolver;
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+import be.simonraes.sudokusolver.model.ASyncDancingLinksSolver;
 import be.simonraes.sudokusolver.model.ASyncFasterSolver;
+import be.simonraes.sudokusolver.model.CancellationToken;
+import be.simonraes.sudokusolver.model.ConflictIndex;
 import be.simonraes.sudokusolver.model.GridLocation;
-import be.simonraes.sudokusolver.model.GridValue;
+import be.simonraes.sudokusolver.model.SolveStatistics;
+import be.simonraes.sudokusolver.model.SolveTrace;
+import be.simonraes.sudokusolver.model.SolverExecutor;
+import be.simonraes.sudokusolver.model.SpeculativeSolver;
+import be.simonraes.sudokusolver.model.SudokuBoard;
+import be.simonraes.sudokusolver.ui.TracePlayer;
 import be.simonraes.sudokusolver.util.AppPreferences;
+import be.simonraes.sudokusolver.util.MainThreadExecutor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
- * Fragment without view that holds the logic and a reference to the ASyncTask.
- * This fragment retains instance state on orientation to keep the reference to the ASyncTask.
+ * Fragment without view that holds the logic and the SolverExecutor the solvers run on.
+ * This fragment retains instance state on orientation to keep the running solvers.
  * Created by Simon Raes on 28/07/2014.
  */
-public class DataFragment extends Fragment implements ASyncBackTrackSolver.solverListener, ASyncFasterSolver.FasterSolverListener {
+public class DataFragment extends Fragment implements ASyncFasterSolver.FasterSolverListener, SpeculativeSolver.Listener {
 
-    GridValue[][] gridValues = new GridValue[9][9];
-    GridValue[][] originalValues = new GridValue[9][9];
+    SudokuBoard gridValues = new SudokuBoard();
+    SudokuBoard originalValues = new SudokuBoard();
 
     private boolean currentlyAnimating = false; // Used to switch between the two different Clear-button modes. (Clear or Stop)
     private boolean currentlySolving = false; // Set to true if a solver is currently working on a solution.
@@ -34,7 +43,7 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
     public DataFragmentDelegate delegate;
 
     public interface DataFragmentDelegate {
-        public void updateValues(GridValue[][] values);
+        public void updateValues(SudokuBoard values);
 
         public void toggleSolveMode(boolean solveModeActive);
 
@@ -43,6 +52,11 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
         int getSelectedX();
 
         int getSelectedY();
+
+        /**
+         * Shows whether the current input can be solved, null while that isn't known.
+         */
+        void updateSolvability(SpeculativeSolver.Verdict verdict);
     }
 
     private SolveMode solveMode;
@@ -51,8 +65,27 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
         NORMAL, HINT, ANIMATION
     }
 
-    private ASyncBackTrackSolver solver;
-    private ASyncFasterSolver fastSolver;
+    // Two threads, so a slow solve can't hold up a hint.
+    private final int SOLVER_THREADS = 2;
+    private SolverExecutor solverExecutor;
+    private CancellationToken fastSolverToken;
+
+    // The animation replays the search the solver recorded instead of solving again. Long searches stop recording at
+    // this size, the rest of the solution is shown at once when the replay gets there.
+    private final int MAX_TRACE_SIZE = 1 << 22;
+    private SolveTrace animationTrace;
+    private TracePlayer tracePlayer;
+
+    // Error flags of the input, invalidated whenever gridValues changes other than through setNumberForSelectedField.
+    private final ConflictIndex conflictIndex = new ConflictIndex();
+
+    // Last solution found for the current input (flat, index = x * 9 + y), so repeated hints don't start a new solver.
+    // Hints are taken from it, so it stays valid until the input is edited or cleared.
+    private int[] cachedSolution;
+
+    // Time the input has to stay the same before it is solved in the background.
+    private final long SPECULATION_DELAY = 300;
+    private SpeculativeSolver speculativeSolver;
 
     @Override
     public void onAttach(Activity activity) {
@@ -67,6 +100,18 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setRetainInstance(true);
+        solverExecutor = new SolverExecutor(SOLVER_THREADS, new MainThreadExecutor());
+        speculativeSolver = new SpeculativeSolver(SPECULATION_DELAY, this);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        solverExecutor.shutdown();
+        speculativeSolver.shutdown();
+        if (tracePlayer != null) {
+            tracePlayer.stop();
+        }
     }
 
     @Override
@@ -94,6 +139,13 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
     }
 
     public void solveForHint() {
+        if (cachedSolution != null) {
+            if (!currentlySolving) {
+                showHint();
+            }
+            return;
+        }
+
         solveMode = SolveMode.HINT;
         startSolver();
     }
@@ -104,11 +156,36 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
             // Store the currently visible values in a separate array.
             // These original values will be restored if the solver can not find a solution and
             // are also used to find and empty cell to place a hint in.
-            originalValues = copyArray(gridValues);
+            originalValues = gridValues.copy();
+
+            // The input may have been solved in the background already. An animation needs a recorded search, so it
+            // always runs the solver.
+            if (solveMode != SolveMode.ANIMATION) {
+                final SpeculativeSolver.Result result = speculativeSolver.getResult(gridValues.getValues());
+                if (result != null && result.getVerdict() != SpeculativeSolver.Verdict.TIMED_OUT) {
+                    showSpeculativeResult(result);
+                    return;
+                }
+            }
+
             currentlySolving = true;
 
-            fastSolver = new ASyncFasterSolver(this);
-            fastSolver.execute(gridValues);
+            final SolverExecutor.Priority priority = solveMode == SolveMode.HINT ? SolverExecutor.Priority.HINT
+                    : SolverExecutor.Priority.SOLVE;
+
+            // Only the faster solver can record its search for the animation.
+            if (AppPreferences.useDancingLinks(getActivity()) && solveMode != SolveMode.ANIMATION) {
+                final ASyncDancingLinksSolver fastSolver = new ASyncDancingLinksSolver(this, gridValues.copy());
+                fastSolverToken = solverExecutor.submit(priority, fastSolver, fastSolver);
+            } else {
+                final ASyncFasterSolver fastSolver = new ASyncFasterSolver(this, gridValues.copy(),
+                        AppPreferences.getBranchStrategy(getActivity()));
+                if (solveMode == SolveMode.ANIMATION) {
+                    animationTrace = new SolveTrace(MAX_TRACE_SIZE);
+                    fastSolver.setTrace(animationTrace);
+                }
+                fastSolverToken = solverExecutor.submit(priority, fastSolver, fastSolver);
+            }
         }
     }
 
@@ -116,22 +193,26 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
 
         if (selectedX >= 0 && selectedY >= 0) {
             if (number > 0) {
-                GridValue addedValue = new GridValue(number);
-                addedValue.setInput(true);
-                gridValues[selectedX][selectedY] = addedValue;
+                gridValues.setInput(selectedX, selectedY, number);
             } else {
-                gridValues[selectedX][selectedY] = null;
+                gridValues.clear(selectedX, selectedY);
             }
+            cachedSolution = null;
 
-            if (solver == null) {
-                solver = new ASyncBackTrackSolver(getActivity(), this, false);
+            // Check if this new input causes any errors.
+            if (conflictIndex.isLoaded()) {
+                conflictIndex.update(gridValues, selectedX, selectedY);
+            } else {
+                conflictIndex.load(gridValues);
             }
 
-            // Check if this new input causes any errors.
-            if (solver.isErrorFree(gridValues)) {
+            delegate.updateSolvability(null);
+            if (conflictIndex.isErrorFree()) {
                 enableSolveButtons();
+                speculativeSolver.schedule(gridValues.getValues());
             } else {
                 disableSolveButtons();
+                speculativeSolver.cancel();
             }
 
             refreshSudokuView();
@@ -149,8 +230,12 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
             currentlyAnimating = false;
         } else {
             // Clear all cells
-            gridValues = new GridValue[9][9];
+            gridValues = new SudokuBoard();
         }
+        conflictIndex.invalidate();
+        cachedSolution = null;
+        speculativeSolver.cancel();
+        delegate.updateSolvability(null);
 
         toggleSolveMode(false);
         refreshSudokuView();
@@ -160,27 +245,27 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
      * Removes all cells found as solution from the array. Hints will not be removed.
      */
     private void clearSolutionCells() {
-        for (int i = 0; i < gridValues.length; i++) {
-            for (int j = 0; j < gridValues.length; j++) {
-                if (gridValues[i][j] != null && gridValues[i][j].isSolution()) {
-                    gridValues[i][j] = null;
-                }
-            }
-        }
+        gridValues.clearSolution();
     }
 
+    /**
+     * Cancels the running solvers, their results won't reach this fragment anymore.
+     */
     private boolean cancelASyncTask() {
         boolean cancelledTask = false;
-        if (solver != null && solver.getStatus() == AsyncTask.Status.RUNNING) {
-            solver.cancel(true);
+        if (tracePlayer != null && tracePlayer.isRunning()) {
+            tracePlayer.stop();
             cancelledTask = true;
-            solver.clearData();
         }
-        if (fastSolver != null && fastSolver.getStatus() == AsyncTask.Status.RUNNING) {
-            fastSolver.cancel(true);
-            cancelledTask = true;
-
+        if (fastSolverToken != null) {
+            // Also cancel a task that already ran, its result may still be on its way to the main thread.
+            if (!fastSolverToken.isFinished()) {
+                cancelledTask = true;
+            }
+            fastSolverToken.cancel();
         }
+        // A solve that was still running will never report back.
+        currentlySolving = false;
         return cancelledTask;
     }
 
@@ -215,43 +300,89 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
     }
 
     @Override
-    public void valueAdded() {
-        // In case of animation: check if last cell has been found (= end of animation).
-        if (gridValues[8][8] != null) {
-            currentlyAnimating = false;
-            toggleSolveMode(false);
-        }
-        delegate.updateValues(gridValues);
+    public void fastSudokuHasNoSolution() {
+        currentlySolving = false;
+        getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!isSolvedInputCurrent()) {
+                    return;
+                }
+                toggleSolveMode(false);
+                Toast.makeText(getActivity(), "This Sudoku has no solution.", Toast.LENGTH_SHORT).show();
+                cancelASyncTask();
+                gridValues = originalValues;
+                conflictIndex.invalidate();
+                delegate.updateValues(gridValues);
+            }
+        });
     }
 
     @Override
-    public void fastSudokuHasNoSolution() {
+    public void fastSudokuTimedOut(final CalculationTimeOutException exception) {
         currentlySolving = false;
         getActivity().runOnUiThread(new Runnable() {
             @Override
             public void run() {
+                if (!isSolvedInputCurrent()) {
+                    return;
+                }
                 toggleSolveMode(false);
-                Toast.makeText(getActivity(), "This Sudoku has no solution.", Toast.LENGTH_SHORT).show();
+                Toast.makeText(getActivity(), exception.getMessage(), Toast.LENGTH_SHORT).show();
+                cancelASyncTask();
+                gridValues = originalValues;
+                conflictIndex.invalidate();
+                delegate.updateValues(gridValues);
+            }
+        });
+    }
+
+    @Override
+    public void fastSudokuFailed(final RuntimeException exception) {
+        currentlySolving = false;
+        getActivity().runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!isSolvedInputCurrent()) {
+                    return;
+                }
+                toggleSolveMode(false);
+                Toast.makeText(getActivity(), "The solver failed: " + exception, Toast.LENGTH_SHORT).show();
                 cancelASyncTask();
                 gridValues = originalValues;
+                conflictIndex.invalidate();
                 delegate.updateValues(gridValues);
             }
         });
     }
 
     @Override
-    public void fastSudokuSolved(GridValue[][] gridValues) {
+    public void fastSudokuHasMultipleSolutions() {
+        if (!isSolvedInputCurrent()) {
+            return;
+        }
+        Toast.makeText(getActivity(), "This Sudoku has more than one solution.", Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void fastSudokuSolved(SudokuBoard solvedValues, SolveStatistics statistics) {
         currentlySolving = false;
-        this.gridValues = gridValues;
+        if (!isSolvedInputCurrent()) {
+            return;
+        }
+        cachedSolution = solvedValues.getValues();
         toggleSolveMode(false);
 
         // Decide what to do based on the active solve mode.
         switch (solveMode) {
             case NORMAL:
-
+                gridValues = solvedValues;
+                conflictIndex.invalidate();
                 refreshSudokuView();
                 break;
             case HINT:
+                // The solver worked on a copy, the grid on screen still holds the input.
+                originalValues = null;
                 showHint();
                 break;
             case ANIMATION:
@@ -260,15 +391,55 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
         }
     }
 
-    /**Reveals a single cell.*/
+    @Override
+    public void speculativeSolveFinished(final SpeculativeSolver.Result result) {
+        final Activity activity = getActivity();
+        if (activity == null) {
+            return;
+        }
+
+        activity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                // The input can have changed again while the result was on its way.
+                if (delegate == null || !result.matches(gridValues.getValues())) {
+                    return;
+                }
+                if (result.getSolution() != null && cachedSolution == null) {
+                    cachedSolution = result.getSolution();
+                }
+                delegate.updateSolvability(result.getVerdict());
+            }
+        });
+    }
+
+    /**
+     * Reports a finished background solve as if the fast solver had just found it.
+     */
+    private void showSpeculativeResult(SpeculativeSolver.Result result) {
+        if (result.getVerdict() == SpeculativeSolver.Verdict.NONE) {
+            fastSudokuHasNoSolution();
+            return;
+        }
+
+        if (result.getVerdict() == SpeculativeSolver.Verdict.MULTIPLE) {
+            fastSudokuHasMultipleSolutions();
+        }
+
+        final SudokuBoard solvedValues = gridValues.copy();
+        solvedValues.fillSolution(result.getSolution());
+        fastSudokuSolved(solvedValues, result.getStatistics());
+    }
+
+    /**Reveals a single cell of the cached solution.*/
     private void showHint() {
 
         // Make a list of all empty cells.
         ArrayList<GridLocation> openSpaces = new ArrayList<GridLocation>();
 
-        for (int i = 0; i < originalValues.length; i++) {
-            for (int j = 0; j < originalValues.length; j++) {
-                if (originalValues[i][j] == null) {
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (gridValues.isEmpty(i, j)) {
                     openSpaces.add(new GridLocation(i, j));
                 }
             }
@@ -279,7 +450,7 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
 
         // Only search for hint if there is an empty cell available.
         if (openSpaces.size() > 0) {
-            if (selectedX < 0 || selectedY < 0 || originalValues[selectedX][selectedY] != null) {
+            if (selectedX < 0 || selectedY < 0 || !gridValues.isEmpty(selectedX, selectedY)) {
                 // No location selected or selection already has a value, reveal a random cell.
                 Random random = new Random();
                 GridLocation hintLocation = openSpaces.get(random.nextInt(openSpaces.size()));
@@ -287,51 +458,57 @@ public class DataFragment extends Fragment implements ASyncBackTrackSolver.solve
                 selectedX = hintLocation.getX();
                 selectedY = hintLocation.getY();
             }
-            if (gridValues[selectedX][selectedY] != null) {
-                GridValue hintValue = gridValues[selectedX][selectedY];
-                hintValue.setHint(true);
-                hintValue.setSolution(false);
-                originalValues[selectedX][selectedY] = hintValue;
+            gridValues.setHint(selectedX, selectedY, cachedSolution[selectedX * 9 + selectedY]);
 
-                gridValues = originalValues;
-                originalValues = null;
-                refreshSudokuView();
+            if (conflictIndex.isLoaded()) {
+                conflictIndex.update(gridValues, selectedX, selectedY);
             }
+            refreshSudokuView();
         }
     }
 
+    /**
+     * Returns false if the board was edited after the running solve started, its result is about the old input then.
+     * Only a hint solve leaves the board editable.
+     */
+    private boolean isSolvedInputCurrent() {
+        return originalValues != null && Arrays.equals(originalValues.getValues(), gridValues.getValues());
+    }
+
     private void startAnimation() {
         toggleSolveMode(true);
         solveMode = SolveMode.NORMAL;   // Values will be coming in one by one and can be displayed as a normal Sudoku.
         currentlyAnimating = true;
 
-        solver = new ASyncBackTrackSolver(getActivity(), this, true);
+        // Replay the recorded search on the input. The step time is read once instead of before every step.
         gridValues = originalValues;
-        solver.execute(gridValues);
-    }
-
-    /**
-     * Returns a copy (new object) of the supplied array.
-     */
-    private GridValue[][] copyArray(GridValue[][] array) {
-        GridValue[][] newArray = new GridValue[array.length][array.length];
-
-        for (int i = 0; i < array.length; i++) {
-            for (int j = 0; j < array.length; j++) {
-                GridValue oldValue = array[i][j];
-                if (oldValue == null) {
-                    newArray[i][j] = null;
-                } else {
-                    GridValue newValue = new GridValue(oldValue.getValue());
-                    newValue.setError(oldValue.isError());
-                    newValue.setSolution(oldValue.isSolution());
-                    newValue.setHint(oldValue.isHint());
-                    newValue.setInput(oldValue.isInput());
-
-                    newArray[i][j] = newValue;
-                }
-            }
-        }
-        return newArray;
+        final SolveTrace trace = animationTrace;
+        animationTrace = null;
+        tracePlayer = new TracePlayer(new SolveTrace.Replay(trace, gridValues), AppPreferences.getStepTime(getActivity()),
+                new TracePlayer.Listener() {
+                    @Override
+                    public void onFrame() {
+                        conflictIndex.invalidate();
+                        if (delegate != null) {
+                            delegate.updateValues(gridValues);
+                        }
+                    }
+
+                    @Override
+                    public void onFinished() {
+                        // A trace that ran out of space ends somewhere in the search, jump to the solution.
+                        if (!trace.isComplete()) {
+                            gridValues.clearSolution();
+                            gridValues.fillSolution(cachedSolution);
+                        }
+                        currentlyAnimating = false;
+                        conflictIndex.invalidate();
+                        if (delegate != null) {
+                            toggleSolveMode(false);
+                            delegate.updateValues(gridValues);
+                        }
+                    }
+                });
+        tracePlayer.start();
     }
 }
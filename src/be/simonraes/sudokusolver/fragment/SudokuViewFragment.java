@@ -7,7 +7,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import be.simonraes.sudokusolver.R;
-import be.simonraes.sudokusolver.model.GridValue;
+import be.simonraes.sudokusolver.model.SudokuBoard;
 import be.simonraes.sudokusolver.ui.SudokuGrid;
 
 /**
@@ -34,7 +34,7 @@ public class SudokuViewFragment extends Fragment {
         return sudokuGrid.getSelectedCol();
     }
 
-    public void setValues(GridValue[][] values) {
+    public void setValues(SudokuBoard values) {
         sudokuGrid.setValues(values);
     }
 }
@@ -0,0 +1,85 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Solver using Dancing Links (exact cover). Runs on the SolverExecutor and reports to the same listener as the
+ * ASyncFasterSolver.
+ */
+public class ASyncDancingLinksSolver implements SolverExecutor.Task<Void>, SolverExecutor.Callback<Void> {
+
+    private ASyncFasterSolver.FasterSolverListener delegate;
+
+    private SudokuBoard gridValues;
+    private boolean sudokuHasSolution = false;
+    private final SolveStatistics statistics = new SolveStatistics();
+    private CancellationToken token;
+
+    private final DancingLinks dancingLinks = new DancingLinks() {
+        @Override
+        protected boolean isCancelled() {
+            return token != null && token.isCancelled();
+        }
+    };
+
+    /**
+     * @param gridValues the input, the empty cells are filled in with the solution.
+     */
+    public ASyncDancingLinksSolver(ASyncFasterSolver.FasterSolverListener delegate, SudokuBoard gridValues) {
+        this.delegate = delegate;
+        this.gridValues = gridValues;
+    }
+
+    @Override
+    public Void run(CancellationToken token) {
+
+        this.token = token;
+        int[][] board = gridValueArrayToIntArray(gridValues);
+
+        final long startTime = System.nanoTime();
+        sudokuHasSolution = dancingLinks.solve(board);
+        statistics.totalNanos = System.nanoTime() - startTime;
+        statistics.nodeCount = dancingLinks.getNodeCount();
+
+        if (sudokuHasSolution) {
+            for (int x = 0; x < 9; x++) {
+                for (int y = 0; y < 9; y++) {
+                    if (gridValues.isEmpty(x, y)) {
+                        gridValues.setSolution(x, y, board[x][y]);
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void onFinished(Void result) {
+        if (sudokuHasSolution) {
+            delegate.fastSudokuSolved(gridValues, statistics);
+        } else {
+            delegate.fastSudokuHasNoSolution();
+        }
+    }
+
+    @Override
+    public void onFailed(RuntimeException exception) {
+        delegate.fastSudokuFailed(exception);
+    }
+
+    public void clearData() {
+        gridValues = null;
+    }
+
+    private int[][] gridValueArrayToIntArray(SudokuBoard gridArray) {
+
+        int[][] newArray = new int[9][9];
+
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                newArray[i][j] = gridArray.getValue(i, j);
+            }
+        }
+
+        return newArray;
+    }
+}
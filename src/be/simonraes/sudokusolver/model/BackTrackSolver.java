@@ -0,0 +1,167 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.SolutionFoundException;
+
+/**
+ * Backtracking algorithm and input validation, without any Android dependencies.
+ * The digits used in every row, column and box are kept in bit masks, so checking a number is a single lookup
+ * instead of a rescan of the board. Placing and removing a value only writes a byte of the SudokuBoard, nothing is
+ * allocated while the search runs.
+ * Created by Simon Raes on 28/07/2014.
+ */
+public class BackTrackSolver {
+
+    private SudokuBoard values;
+
+    private final int[] rowMasks = new int[SudokuTables.SIZE];
+    private final int[] colMasks = new int[SudokuTables.SIZE];
+    private final int[] boxMasks = new int[SudokuTables.SIZE];
+
+    private final ConflictIndex conflictIndex = new ConflictIndex();
+
+    /**
+     * Solves the supplied grid in place, every cell that is filled in is marked as solution.
+     *
+     * @return true if a solution was found.
+     */
+    public boolean solve(SudokuBoard model) {
+        this.values = model;
+        loadMasks();
+
+        try {
+            solve(0, 0);
+        } catch (SolutionFoundException e) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called after every value the algorithm places.
+     */
+    protected void onValueAdded() {
+    }
+
+    /**
+     * Override to stop a running solve.
+     */
+    protected boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Sets the error flag of every cell that shares a row, column or box with the same value.
+     *
+     * @return true if no cell has an error.
+     */
+    public boolean isErrorFree(SudokuBoard model) {
+        conflictIndex.load(model);
+        return conflictIndex.isErrorFree();
+    }
+
+    /**
+     * Fills the masks with the values already on the grid.
+     */
+    private void loadMasks() {
+        for (int i = 0; i < SudokuTables.SIZE; i++) {
+            rowMasks[i] = 0;
+            colMasks[i] = 0;
+            boxMasks[i] = 0;
+        }
+
+        for (int cell = 0; cell < SudokuTables.CELLS; cell++) {
+            final int value = values.getValue(cell);
+            if (value != 0) {
+                final int bit = 1 << (value - 1);
+                rowMasks[SudokuTables.ROW[cell]] |= bit;
+                colMasks[SudokuTables.COLUMN[cell]] |= bit;
+                boxMasks[SudokuTables.BOX[cell]] |= bit;
+            }
+        }
+    }
+
+    /**
+     * Adds a value that isn't used yet to the masks of the row, column and box of a cell, or removes it again.
+     */
+    private void toggleMasks(int cell, int num) {
+        final int bit = 1 << (num - 1);
+        rowMasks[SudokuTables.ROW[cell]] ^= bit;
+        colMasks[SudokuTables.COLUMN[cell]] ^= bit;
+        boxMasks[SudokuTables.BOX[cell]] ^= bit;
+    }
+
+    private void solve(int row, int col) throws SolutionFoundException {
+
+        if (!isCancelled()) {
+
+            if (row > SudokuTables.SIZE - 1) {
+
+                // Exception to break out of code if a solution is found.
+                throw new SolutionFoundException();
+            }
+
+            // If the cell is not empty, continue with the next cell
+            if (!values.isEmpty(row, col)) {
+                next(row, col);
+            } else {
+                // Find a valid number for the empty cell
+                final int cell = row * SudokuTables.SIZE + col;
+
+                for (int num = 1; num < SudokuTables.SIZE + 1; num++) {
+                    if (checkRow(row, num) && checkCol(col, num) && checkBox(row, col, num)) {
+                        values.setSolution(row, col, num);
+                        toggleMasks(cell, num);
+
+                        onValueAdded();
+
+                        // Delegate work on the next cell to a recursive call
+                        if (!isCancelled()) {
+                            next(row, col);
+                        }
+
+                        toggleMasks(cell, num);
+                    }
+                }
+
+                // No valid number was found, clean up and return to caller
+                values.clear(row, col);
+            }
+        }
+    }
+
+
+    /**
+     * Checks if num is an acceptable value for the given row
+     */
+    protected boolean checkRow(int row, int num) {
+        return (rowMasks[row] & (1 << (num - 1))) == 0;
+    }
+
+    /**
+     * Checks if num is an acceptable value for the given column
+     */
+    protected boolean checkCol(int col, int num) {
+        return (colMasks[col] & (1 << (num - 1))) == 0;
+    }
+
+    /**
+     * Checks if num is an acceptable value for the box around row and col
+     */
+    protected boolean checkBox(int row, int col, int num) {
+        return (boxMasks[SudokuTables.BOX[row * SudokuTables.SIZE + col]] & (1 << (num - 1))) == 0;
+    }
+
+    /**
+     * Calls solve for the next cell.
+     */
+    public void next(int row, int col) throws SolutionFoundException {
+        if (col < SudokuTables.SIZE - 1)
+            solve(row, col + 1);
+        else
+            solve(row + 1, 0);
+    }
+
+    public void clearData() {
+        values = null;
+    }
+}
@@ -0,0 +1,101 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+/**
+ * Puts a SolutionCache in front of a FasterSolver. A puzzle is canonicalized first; on a hit the cached solution is
+ * mapped back through the inverse transformation, on a miss the canonical puzzle is solved and stored. Solving the
+ * canonical form instead of the input means every version of a puzzle gets the same answer, also when it has more
+ * than one solution.
+ * Boards without empty cells go straight to the solver, checking them takes no search and the canonicalizer gives up on
+ * them anyway. A board the canonicalizer gives up on is solved without the cache, it counts as neither hit nor miss.
+ * Not thread safe, keep one per thread. The cache can be shared.
+ */
+public class CachingSolver {
+
+    private final FasterSolver solver;
+    private final SolutionCache cache;
+    private final Canonicalizer canonicalizer = new Canonicalizer();
+    private final int[] canonicalCells = new int[SudokuTables.CELLS];
+    private final char[] key = new char[SudokuTables.CELLS];
+    private boolean lastAnswerCached;
+
+    public CachingSolver(FasterSolver solver, SolutionCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    /**
+     * Same as FasterSolver.solve, answered from the cache if possible.
+     */
+    public boolean solve(final int[] cells) throws CalculationTimeOutException {
+        return countSolutions(cells, 1) > 0;
+    }
+
+    /**
+     * Same as FasterSolver.countSolutions, answered from the cache if possible. Timed out and cancelled solves aren't
+     * stored.
+     */
+    public int countSolutions(final int[] cells, final int limit) throws CalculationTimeOutException {
+        lastAnswerCached = false;
+
+        if (isFull(cells)) {
+            return solver.countSolutions(cells, limit);
+        }
+
+        final SudokuTransform transform = canonicalizer.canonicalize(cells);
+        if (transform == null) {
+            return solver.countSolutions(cells, limit);
+        }
+
+        transform.apply(cells, canonicalCells);
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            key[i] = (char) ('0' + canonicalCells[i]);
+        }
+        final String canonicalKey = new String(key);
+
+        final SolutionCache.Entry entry = cache.get(canonicalKey, limit);
+        if (entry != null) {
+            lastAnswerCached = true;
+            if (entry.solution != null) {
+                transform.revert(entry.solution, cells);
+            }
+            return Math.min(entry.solutionCount, limit);
+        }
+
+        final int solutionCount = solver.countSolutions(canonicalCells, limit);
+        if (!solver.isCancelled()) {
+            cache.put(canonicalKey, new SolutionCache.Entry(solutionCount, limit,
+                    solutionCount > 0 ? canonicalCells.clone() : null));
+        }
+        if (solutionCount > 0) {
+            transform.revert(canonicalCells, cells);
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Returns true if the last answer came from the cache, the node count and statistics of the solver still belong to
+     * an earlier solve then.
+     */
+    public boolean isLastAnswerCached() {
+        return lastAnswerCached;
+    }
+
+    public FasterSolver getSolver() {
+        return solver;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    private static boolean isFull(final int[] cells) {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            if (cells[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
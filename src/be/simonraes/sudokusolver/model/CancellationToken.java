@@ -0,0 +1,46 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Handed out by the SolverExecutor for every submitted task. Cancelling drops the task if it hasn't started yet,
+ * interrupts it if it is running (so a task that waits wakes up) and stops its callbacks from being delivered.
+ * Solvers poll isCancelled once per search node.
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+    // Thread running the task, only set while it runs.
+    private Thread runner;
+
+    public void cancel() {
+        cancelled = true;
+
+        synchronized (this) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns true once the task has run, whether or not it was cancelled while running.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    synchronized void attach(Thread thread) {
+        runner = thread;
+    }
+
+    synchronized void detach() {
+        runner = null;
+        finished = true;
+        // An interrupt that came in after the task stopped checking must not hit the next task on this thread.
+        Thread.interrupted();
+    }
+}
@@ -0,0 +1,227 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Maps a board onto one representative of all boards that only differ by relabelled digits, swapped rows within a
+ * band, swapped columns within a stack, swapped bands or stacks, or a transposition. Two puzzles get the same
+ * canonical form exactly when one can be transformed into the other, so the solution of one can be mapped onto the
+ * other.
+ * The canonical form is the smallest transformed board, compared row by row, with the digits relabelled 1, 2, 3... in
+ * order of first appearance. Empty cells count as larger than any digit: that pulls the clues to the front, and the
+ * clues tell the rows and columns apart much sooner than empty cells do. For every first row, with and without
+ * transposing, a depth-first search picks the columns one by one and then the remaining rows, dropping a branch as
+ * soon as a cell is larger than the same cell of the best board so far.
+ * Full solution grids have no empty cells to tell the lines apart and relabelling makes every first row start the
+ * same, so nearly every branch ties: they practically always hit MAX_STEP_COUNT and get null. CachingSolver doesn't
+ * canonicalize them.
+ * Not thread safe, keep one per thread.
+ */
+public class Canonicalizer {
+
+    /**
+     * Highly symmetrical boards, an empty board being the worst, tie on almost every branch. After trying this many
+     * rows and columns the canonicalizer gives up.
+     */
+    public static final int MAX_STEP_COUNT = 100000;
+
+    private static final int SIZE = SudokuTables.SIZE;
+    private static final int CELLS = SudokuTables.CELLS;
+    // How an empty cell compares to the digit labels.
+    private static final int EMPTY = SIZE + 1;
+    // Sets of rows or columns, bit i is set for row or column i.
+    private static final int ALL_LINES = (1 << SIZE) - 1;
+    private static final int BAND_LINES = (1 << 3) - 1;
+
+    private final int[] grid = new int[CELLS];
+    private boolean transposed;
+    private final int[] rows = new int[SIZE];
+    private final int[] columns = new int[SIZE];
+    // The digit labels after the first depth rows: labels[depth][digit], 0 for a digit that didn't appear yet.
+    private final int[][] labels = new int[SIZE + 1][SIZE + 1];
+    private final int[] labelCounts = new int[SIZE + 1];
+    private int stepCount;
+
+    // Smallest board found so far, only its first bestCellCount cells are known. The board on the current branch is
+    // always equal to it up to the cell being compared.
+    private final int[] best = new int[CELLS];
+    private int bestCellCount;
+    // Set when best changed and the transformation that produces it wasn't recorded yet.
+    private boolean bestChanged;
+    private boolean bestTransposed;
+    private final int[] bestRows = new int[SIZE];
+    private final int[] bestColumns = new int[SIZE];
+    private final int[] bestLabels = new int[SIZE + 1];
+
+    /**
+     * @return the transformation that maps the board onto its canonical form, or null if the board is too
+     * symmetrical to canonicalize within MAX_STEP_COUNT.
+     */
+    public SudokuTransform canonicalize(final int[] cells) {
+        stepCount = 0;
+        bestCellCount = 0;
+        bestChanged = false;
+
+        for (int digit = 0; digit <= SIZE; digit++) {
+            labels[1][digit] = 0;
+        }
+
+        for (int t = 0; t < 2; t++) {
+            transposed = t == 1;
+
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    grid[x * SIZE + y] = transposed ? cells[y * SIZE + x] : cells[x * SIZE + y];
+                }
+            }
+
+            for (int firstRow = 0; firstRow < SIZE; firstRow++) {
+                rows[0] = firstRow;
+                if (!searchColumns(0, 0, 0)) {
+                    return null;
+                }
+            }
+        }
+
+        return new SudokuTransform(bestTransposed, bestRows, bestColumns, bestLabels);
+    }
+
+    /**
+     * Orders the columns by the first row, trying the same way as searchRows for the rows. Labels are given out in
+     * labels[1] and taken back when a branch is done. Every column order that ties on the first row continues with the
+     * other rows.
+     *
+     * @return false if MAX_STEP_COUNT was reached.
+     */
+    private boolean searchColumns(final int c, final int usedColumns, final int labelCount) {
+        if (c == SIZE) {
+            labelCounts[1] = labelCount;
+            return searchRows(1, 1 << rows[0]);
+        }
+
+        final int[] current = labels[1];
+        final int candidates = c % 3 == 0 ? ALL_LINES & ~usedColumns
+                : (BAND_LINES << (columns[c - 1] / 3 * 3)) & ~usedColumns;
+
+        for (int remaining = candidates; remaining != 0; remaining &= remaining - 1) {
+            final int column = Integer.numberOfTrailingZeros(remaining);
+
+            if (++stepCount > MAX_STEP_COUNT) {
+                return false;
+            }
+
+            final int digit = grid[rows[0] * SIZE + column];
+            final boolean newLabel = digit != 0 && current[digit] == 0;
+            if (newLabel) {
+                current[digit] = labelCount + 1;
+            }
+
+            final int value = digit == 0 ? EMPTY : current[digit];
+            final int comparison = c < bestCellCount ? value - best[c] : -1;
+
+            if (comparison <= 0) {
+                if (comparison < 0) {
+                    best[c] = value;
+                    bestCellCount = c + 1;
+                    bestChanged = true;
+                }
+
+                columns[c] = column;
+                if (!searchColumns(c + 1, usedColumns | (1 << column), newLabel ? labelCount + 1 : labelCount)) {
+                    return false;
+                }
+            }
+
+            if (newLabel) {
+                current[digit] = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tries every row that can come at the given depth: any row of an unused band at the start of a band, otherwise
+     * the unused rows of the current band.
+     *
+     * @return false if MAX_STEP_COUNT was reached.
+     */
+    private boolean searchRows(final int depth, final int usedRows) {
+        if (depth == SIZE) {
+            if (bestChanged) {
+                recordBest();
+            }
+            return true;
+        }
+
+        final int candidates = depth % 3 == 0 ? ALL_LINES & ~usedRows
+                : (BAND_LINES << (rows[depth - 1] / 3 * 3)) & ~usedRows;
+
+        for (int remaining = candidates; remaining != 0; remaining &= remaining - 1) {
+            final int row = Integer.numberOfTrailingZeros(remaining);
+
+            if (++stepCount > MAX_STEP_COUNT) {
+                return false;
+            }
+
+            if (placeRow(depth, row) <= 0) {
+                rows[depth] = row;
+                if (!searchRows(depth + 1, usedRows | (1 << row))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Relabels a row as row depth of the result and compares it with the same row of the best board. A smaller row
+     * is written into the best board right away.
+     *
+     * @return negative if the row is smaller, 0 if it is equal, positive if it is larger.
+     */
+    private int placeRow(final int depth, final int row) {
+        final int[] after = labels[depth + 1];
+        System.arraycopy(labels[depth], 0, after, 0, SIZE + 1);
+        int labelCount = labelCounts[depth];
+        int comparison = depth * SIZE < bestCellCount ? 0 : -1;
+
+        for (int c = 0; c < SIZE; c++) {
+            final int digit = grid[row * SIZE + columns[c]];
+            if (digit != 0 && after[digit] == 0) {
+                after[digit] = ++labelCount;
+            }
+
+            final int value = digit == 0 ? EMPTY : after[digit];
+            if (comparison == 0) {
+                comparison = value - best[depth * SIZE + c];
+                if (comparison > 0) {
+                    return comparison;
+                }
+            }
+            if (comparison < 0) {
+                best[depth * SIZE + c] = value;
+            }
+        }
+
+        labelCounts[depth + 1] = labelCount;
+        if (comparison < 0) {
+            bestCellCount = (depth + 1) * SIZE;
+            bestChanged = true;
+        }
+        return comparison;
+    }
+
+    private void recordBest() {
+        bestChanged = false;
+        bestTransposed = transposed;
+        System.arraycopy(rows, 0, bestRows, 0, SIZE);
+        System.arraycopy(columns, 0, bestColumns, 0, SIZE);
+        System.arraycopy(labels[SIZE], 0, bestLabels, 0, SIZE + 1);
+
+        // Digits that don't appear on the board get the remaining labels, so the relabelling is a permutation.
+        int labelCount = labelCounts[SIZE];
+        for (int digit = 1; digit <= SIZE; digit++) {
+            if (bestLabels[digit] == 0) {
+                bestLabels[digit] = ++labelCount;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Keeps the error flags of a grid up to date while the user types. Every row, column and box keeps a count per digit,
+ * so an edit only has to look at the 20 cells that share a unit with the edited cell instead of rescanning the board.
+ * Load the grid once, then report every single cell change with update. If the grid is changed in any other way
+ * (a solver filled it in, it was replaced or cleared), invalidate the index and load it again before the next update.
+ */
+public class ConflictIndex {
+
+    private static final int SIZE = SudokuTables.SIZE;
+    private static final int CELLS = SudokuTables.CELLS;
+    private static final int PEER_COUNT = SudokuTables.PEER_COUNT;
+
+    private static final int[] CELL_UNITS = SudokuTables.CELL_UNITS;
+    private static final int[] PEERS = SudokuTables.PEERS;
+
+    private final int[] values = new int[CELLS];
+    // Number of cells holding a digit in a unit, index = unit * SIZE + digit - 1.
+    private final int[] digitCounts = new int[SudokuTables.UNIT_COUNT * SIZE];
+    // Number of unit/digit combinations that occur more than once.
+    private int duplicateCount;
+    private boolean loaded;
+
+    /**
+     * Rebuilds the counts from a grid and sets the error flag of every cell in it.
+     */
+    public void load(SudokuBoard grid) {
+        for (int i = 0; i < digitCounts.length; i++) {
+            digitCounts[i] = 0;
+        }
+        duplicateCount = 0;
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            values[cell] = grid.getValue(cell);
+            if (values[cell] != 0) {
+                add(cell, values[cell]);
+            }
+        }
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (values[cell] != 0) {
+                grid.setError(cell, isConflicting(cell));
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Marks the index as out of date, the next call to isLoaded returns false until the grid is loaded again.
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Picks up the new content of a single cell and updates the error flags of that cell and its peers.
+     */
+    public void update(SudokuBoard grid, int x, int y) {
+        final int cell = x * SIZE + y;
+        final int oldValue = values[cell];
+        final int newValue = grid.getValue(cell);
+
+        if (oldValue == newValue) {
+            // The same digit again, but the cell was overwritten and lost its error flag.
+            if (newValue != 0) {
+                grid.setError(cell, isConflicting(cell));
+            }
+            return;
+        }
+
+        if (oldValue != 0) {
+            remove(cell, oldValue);
+        }
+        values[cell] = newValue;
+        if (newValue != 0) {
+            add(cell, newValue);
+            grid.setError(cell, isConflicting(cell));
+        }
+
+        // Only peers holding the old or the new digit can have changed state.
+        for (int i = cell * PEER_COUNT; i < (cell + 1) * PEER_COUNT; i++) {
+            final int peer = PEERS[i];
+            final int peerValue = values[peer];
+
+            if (peerValue != 0 && (peerValue == oldValue || peerValue == newValue)) {
+                grid.setError(peer, isConflicting(peer));
+            }
+        }
+    }
+
+    /**
+     * Returns true if no row, column or box contains a digit twice.
+     */
+    public boolean isErrorFree() {
+        return duplicateCount == 0;
+    }
+
+    private boolean isConflicting(final int cell) {
+        final int digit = values[cell] - 1;
+        final int units = cell * 3;
+
+        return digitCounts[CELL_UNITS[units] * SIZE + digit] > 1
+                || digitCounts[CELL_UNITS[units + 1] * SIZE + digit] > 1
+                || digitCounts[CELL_UNITS[units + 2] * SIZE + digit] > 1;
+    }
+
+    private void add(final int cell, final int value) {
+        for (int i = cell * 3; i < cell * 3 + 3; i++) {
+            if (++digitCounts[CELL_UNITS[i] * SIZE + value - 1] == 2) {
+                duplicateCount++;
+            }
+        }
+    }
+
+    private void remove(final int cell, final int value) {
+        for (int i = cell * 3; i < cell * 3 + 3; i++) {
+            if (--digitCounts[CELL_UNITS[i] * SIZE + value - 1] == 1) {
+                duplicateCount--;
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Exact cover solver using Knuth's Dancing Links (Algorithm X).
+ * A Sudoku is modelled as 729 candidate rows (cell * digit) covering 324 constraint columns:
+ * every cell holds one digit and every row, column and box holds every digit exactly once.
+ * All links are stored in flat int arrays that are allocated once and relinked for every solve,
+ * so a solve doesn't create any objects.
+ */
+public class DancingLinks {
+
+    private static final int SIZE = 9;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int CANDIDATES = CELLS * SIZE;
+    private static final int COLUMNS = CELLS * 4;
+
+    // Node 0 is the root, nodes 1..COLUMNS are the column headers, the candidate rows follow.
+    private static final int ROOT = 0;
+    private static final int FIRST_ROW_NODE = COLUMNS + 1;
+    private static final int NODE_COUNT = FIRST_ROW_NODE + CANDIDATES * 4;
+
+    private final int[] left = new int[NODE_COUNT];
+    private final int[] right = new int[NODE_COUNT];
+    private final int[] up = new int[NODE_COUNT];
+    private final int[] down = new int[NODE_COUNT];
+    private final int[] column = new int[NODE_COUNT];
+    private final int[] candidate = new int[NODE_COUNT];
+    private final int[] columnSize = new int[COLUMNS + 1];
+    private final boolean[] columnCovered = new boolean[COLUMNS + 1];
+
+    private final int[] solution = new int[CELLS];
+    private int solutionDepth;
+
+    private long nodeCount;
+
+    /**
+     * Solves the supplied board in place. Empty cells are 0.
+     *
+     * @return true if a solution was found, false if the board has no solution or the solve was cancelled.
+     */
+    public boolean solve(final int[][] board) {
+        nodeCount = 0;
+        solutionDepth = 0;
+        buildMatrix();
+
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (board[x][y] > 0 && !selectGiven(x, y, board[x][y])) {
+                    return false;
+                }
+            }
+        }
+
+        if (!search()) {
+            return false;
+        }
+
+        for (int i = 0; i < solutionDepth; i++) {
+            final int cell = solution[i] / SIZE;
+            board[cell / SIZE][cell % SIZE] = solution[i] % SIZE + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of candidate rows that were tried during the last solve.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Override to stop a running solve. Checked once for every search node.
+     */
+    protected boolean isCancelled() {
+        return false;
+    }
+
+    private boolean search() {
+        if (right[ROOT] == ROOT) {
+            return true;
+        }
+
+        if (isCancelled()) {
+            return false;
+        }
+
+        // Branch on the constraint with the fewest remaining candidates.
+        int chosenColumn = right[ROOT];
+        for (int c = right[chosenColumn]; c != ROOT; c = right[c]) {
+            if (columnSize[c] < columnSize[chosenColumn]) {
+                chosenColumn = c;
+                if (columnSize[c] <= 1) {
+                    break;
+                }
+            }
+        }
+
+        if (columnSize[chosenColumn] == 0) {
+            return false;
+        }
+
+        cover(chosenColumn);
+
+        for (int rowNode = down[chosenColumn]; rowNode != chosenColumn; rowNode = down[rowNode]) {
+            nodeCount++;
+            solution[solutionDepth++] = candidate[rowNode];
+
+            for (int node = right[rowNode]; node != rowNode; node = right[node]) {
+                cover(column[node]);
+            }
+
+            if (search()) {
+                return true;
+            }
+
+            for (int node = left[rowNode]; node != rowNode; node = left[node]) {
+                uncover(column[node]);
+            }
+
+            solutionDepth--;
+        }
+
+        uncover(chosenColumn);
+        return false;
+    }
+
+    /**
+     * Places a given digit by covering all constraints it satisfies.
+     *
+     * @return false if one of those constraints was already satisfied by another given.
+     */
+    private boolean selectGiven(final int x, final int y, final int value) {
+        final int rowCandidate = (x * SIZE + y) * SIZE + value - 1;
+        final int firstNode = FIRST_ROW_NODE + rowCandidate * 4;
+
+        for (int node = firstNode; node < firstNode + 4; node++) {
+            if (columnCovered[column[node]]) {
+                return false;
+            }
+        }
+
+        for (int node = firstNode; node < firstNode + 4; node++) {
+            cover(column[node]);
+        }
+
+        solution[solutionDepth++] = rowCandidate;
+        return true;
+    }
+
+    private void cover(final int c) {
+        columnCovered[c] = true;
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+
+        for (int rowNode = down[c]; rowNode != c; rowNode = down[rowNode]) {
+            for (int node = right[rowNode]; node != rowNode; node = right[node]) {
+                up[down[node]] = up[node];
+                down[up[node]] = down[node];
+                columnSize[column[node]]--;
+            }
+        }
+    }
+
+    private void uncover(final int c) {
+        for (int rowNode = up[c]; rowNode != c; rowNode = up[rowNode]) {
+            for (int node = left[rowNode]; node != rowNode; node = left[node]) {
+                columnSize[column[node]]++;
+                up[down[node]] = node;
+                down[up[node]] = node;
+            }
+        }
+
+        right[left[c]] = c;
+        left[right[c]] = c;
+        columnCovered[c] = false;
+    }
+
+    /**
+     * (Re)links the full exact cover matrix for an empty board.
+     */
+    private void buildMatrix() {
+        for (int c = 0; c <= COLUMNS; c++) {
+            left[c] = c == 0 ? COLUMNS : c - 1;
+            right[c] = c == COLUMNS ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+            columnSize[c] = 0;
+            columnCovered[c] = false;
+        }
+
+        for (int rowCandidate = 0; rowCandidate < CANDIDATES; rowCandidate++) {
+            final int cell = rowCandidate / SIZE;
+            final int digit = rowCandidate % SIZE;
+            final int x = cell / SIZE;
+            final int y = cell % SIZE;
+            final int box = (x / 3) * 3 + y / 3;
+            final int firstNode = FIRST_ROW_NODE + rowCandidate * 4;
+
+            // Column headers are 1-based, 0 is the root.
+            linkNode(firstNode, 1 + cell, rowCandidate);
+            linkNode(firstNode + 1, 1 + CELLS + x * SIZE + digit, rowCandidate);
+            linkNode(firstNode + 2, 1 + CELLS * 2 + y * SIZE + digit, rowCandidate);
+            linkNode(firstNode + 3, 1 + CELLS * 3 + box * SIZE + digit, rowCandidate);
+
+            for (int i = 0; i < 4; i++) {
+                left[firstNode + i] = firstNode + (i + 3) % 4;
+                right[firstNode + i] = firstNode + (i + 1) % 4;
+            }
+        }
+    }
+
+    /**
+     * Appends a node at the bottom of its column.
+     */
+    private void linkNode(final int node, final int c, final int rowCandidate) {
+        column[node] = c;
+        candidate[node] = rowCandidate;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        columnSize[c]++;
+    }
+}
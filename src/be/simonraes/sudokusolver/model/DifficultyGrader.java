@@ -0,0 +1,161 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+/**
+ * Rates how hard a puzzle is for a person by the strongest technique it needs. The FasterSolver propagates with only
+ * the easiest technique on, then switches the next one on for as long as cells stay empty. Every round starts from the
+ * cells filled in by the round before, so a puzzle is only propagated a few times. If the logical techniques
+ * get stuck, the puzzle needs GUESS, and a full solve tells how many guesses.
+ * Not thread safe, keep one per thread.
+ */
+public class DifficultyGrader {
+
+    /**
+     * The logical techniques from weak to strong, the level of a puzzle is the position of the strongest one it needs
+     * plus one. GUESS comes after all of them.
+     */
+    public static final Technique[] STRENGTH_ORDER = {
+            Technique.BOX_HIDDEN_SINGLE,
+            Technique.HIDDEN_SINGLE,
+            Technique.NAKED_SINGLE,
+            Technique.POINTING,
+            Technique.LINE_CANDIDATES,
+            Technique.NAKED_PAIR,
+            Technique.BOX_NAKED_PAIR,
+            Technique.HIDDEN_PAIR,
+            Technique.X_WING
+    };
+
+    /**
+     * Outcome of grading one puzzle.
+     */
+    public static class Grade {
+        private Technique hardestTechnique;
+        private int level;
+        private long nodeCount;
+        private int solutionCount;
+
+        /**
+         * Returns the strongest technique needed, GUESS if the logical techniques can't solve the puzzle. Null if the
+         * puzzle has no solution.
+         */
+        public Technique getHardestTechnique() {
+            return hardestTechnique;
+        }
+
+        /**
+         * Returns 1 for the weakest technique in STRENGTH_ORDER up to STRENGTH_ORDER.length + 1 for GUESS, 0 if the
+         * puzzle has no solution.
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Returns the number of guesses a full solve makes, 0 below GUESS.
+         */
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Returns the number of solutions: 0, 1 or 2 for more than one.
+         */
+        public int getSolutionCount() {
+            return solutionCount;
+        }
+    }
+
+    private final FasterSolver solver;
+    private final int[] work = new int[SudokuTables.CELLS];
+    // Technique settings of the solver, used for the final solve.
+    private final boolean[] enabled = new boolean[STRENGTH_ORDER.length];
+
+    public DifficultyGrader() {
+        this(new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES));
+    }
+
+    /**
+     * @param solver used for the propagation rounds and the final solve. Its limits and technique settings apply to the
+     *               final solve.
+     */
+    public DifficultyGrader(FasterSolver solver) {
+        this.solver = solver;
+    }
+
+    /**
+     * Grades the supplied flat board (index = x * 9 + y), which is left untouched. Empty cells are 0.
+     *
+     * @param grade filled in and returned, so a pipeline can reuse one per thread.
+     * @throws CalculationTimeOutException if the solver limits ran out during the final solve.
+     */
+    public Grade grade(final int[] cells, final Grade grade) throws CalculationTimeOutException {
+        System.arraycopy(cells, 0, work, 0, SudokuTables.CELLS);
+        grade.nodeCount = 0;
+
+        for (int i = 0; i < STRENGTH_ORDER.length; i++) {
+            enabled[i] = solver.isTechniqueEnabled(STRENGTH_ORDER[i]);
+        }
+
+        try {
+            for (int level = 0; level < STRENGTH_ORDER.length; level++) {
+                enableUpTo(level);
+
+                if (!solver.propagate(work)) {
+                    return setNoSolution(grade);
+                }
+
+                if (isFull(work)) {
+                    grade.hardestTechnique = STRENGTH_ORDER[level];
+                    grade.level = level + 1;
+                    // Propagation only places values every solution has, so a board it fills has exactly one.
+                    grade.solutionCount = 1;
+                    return grade;
+                }
+            }
+
+            restoreTechniques();
+            System.arraycopy(cells, 0, work, 0, SudokuTables.CELLS);
+            grade.solutionCount = solver.countSolutions(work, 2);
+            grade.nodeCount = solver.getNodeCount();
+
+            if (grade.solutionCount == 0) {
+                return setNoSolution(grade);
+            }
+            grade.hardestTechnique = Technique.GUESS;
+            grade.level = STRENGTH_ORDER.length + 1;
+            return grade;
+        } finally {
+            restoreTechniques();
+        }
+    }
+
+    private Grade setNoSolution(final Grade grade) {
+        grade.hardestTechnique = null;
+        grade.level = 0;
+        grade.solutionCount = 0;
+        return grade;
+    }
+
+    private void enableUpTo(final int level) {
+        for (int i = 0; i < STRENGTH_ORDER.length; i++) {
+            solver.setTechniqueEnabled(STRENGTH_ORDER[i], i <= level);
+        }
+    }
+
+    private void restoreTechniques() {
+        for (int i = 0; i < STRENGTH_ORDER.length; i++) {
+            solver.setTechniqueEnabled(STRENGTH_ORDER[i], enabled[i]);
+        }
+    }
+
+    private static boolean isFull(final int[] cells) {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            if (cells[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,1023 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+/**
+ * Search core of the ASyncFasterSolver, without any Android dependencies.
+ * The board is a flat int[81] (index = x * 9 + y) with a candidate bit field per cell and a digit mask per row,
+ * column and box. Every change is pushed on a trail so a failed branch is undone in place instead of
+ * working on copies, which means a search node doesn't allocate anything.
+ * Propagation is driven by what changed: a cell that loses candidates marks its row, column and box, and every
+ * technique only looks at the units that were marked since it last ran. Cells that get down to one candidate are
+ * queued as naked singles, so they are found without scanning the board.
+ * Created by Simon Raes on 20/09/2014.
+ */
+public class FasterSolver {
+
+    /**
+     * Decides which empty cell the brute force phase guesses a value for.
+     */
+    public enum BranchStrategy {
+        /**
+         * The first empty cell in row-major order, like the original algorithm.
+         */
+        FIRST_EMPTY_CELL,
+        /**
+         * The cell with the fewest candidates. Ties go to the cell in the fullest row, column or box.
+         */
+        MINIMUM_REMAINING_VALUES
+    }
+
+    private static final int SIZE = SudokuTables.SIZE;
+    private static final int CELLS = SudokuTables.CELLS;
+    private static final int ALL_ALLOWED = SudokuTables.ALL_ALLOWED;
+
+    private static final int[] ROW = SudokuTables.ROW;
+    private static final int[] COLUMN = SudokuTables.COLUMN;
+    private static final int[] BOX = SudokuTables.BOX;
+    private static final int[] PEERS = SudokuTables.PEERS;
+    private static final int[] UNIT_CELLS = SudokuTables.UNIT_CELLS;
+    private static final int[] CELL_UNIT_BITS = SudokuTables.CELL_UNIT_BITS;
+    private static final int UNIT_COUNT = SudokuTables.UNIT_COUNT;
+    private static final int[] BIT_COUNT = SudokuTables.BIT_COUNT;
+    private static final int[] SINGLE_VALUE = SudokuTables.SINGLE_VALUE;
+
+    // Marks a trail entry as a placement instead of a candidate elimination.
+    private static final int PLACED = 1 << 16;
+    // Every trail entry removes at least one of the 729 candidate bits, so this can never overflow.
+    private static final int TRAIL_CAPACITY = CELLS * SIZE;
+
+    // Sets of units, bit unit is set for every unit in the set.
+    private static final int LINE_UNITS = (1 << (SIZE * 2)) - 1;
+    private static final int ALL_UNITS = (1 << UNIT_COUNT) - 1;
+    private static final int BOX_UNITS = ALL_UNITS & ~LINE_UNITS;
+    private static final int BAND_LINES = (1 << 3) - 1;
+
+    private final int[] board = new int[CELLS];
+    private final int[] allowedValues = new int[CELLS];
+    private final int[] rowMasks = new int[SIZE];
+    private final int[] colMasks = new int[SIZE];
+    private final int[] boxMasks = new int[SIZE];
+    private int placedNumberCount;
+
+    private final int[] trailCells = new int[TRAIL_CAPACITY];
+    private final int[] trailAllowedValues = new int[TRAIL_CAPACITY];
+    private int trailSize;
+
+    // First solution found while counting.
+    private final int[] firstSolution = new int[CELLS];
+
+    // Scratch space for the line/box interactions, kept here so propagation doesn't allocate.
+    private final int[] sections = new int[3];
+    // Scratch space for the hidden pairs and X-Wings: a bit per unit position for every digit or line.
+    private final int[] positions = new int[SIZE];
+
+    // Cells that got down to one or no candidates and still have to be placed or reported as a contradiction.
+    private final int[] singleQueue = new int[CELLS];
+    private final boolean[] queued = new boolean[CELLS];
+    private int singleQueueSize;
+
+    // Units that lost candidates since the last technique ran, and for every technique the units it still has to
+    // look at. Changes are only copied into the pending sets when a technique asks for its units.
+    private int changedUnits;
+    private final int[] pendingUnits = new int[Technique.values().length];
+
+    private final boolean[] techniqueEnabled = new boolean[Technique.values().length];
+
+    private BranchStrategy branchStrategy = BranchStrategy.FIRST_EMPTY_CELL;
+    private long nodeCount;
+
+    // Limits for a single solve, 0 means unlimited. Checked once for every search node.
+    private long maxDurationMillis;
+    private long maxNodeCount;
+    private long deadline;
+
+    // Only collected if set, every counter is behind a null check so a solve without statistics pays almost nothing.
+    private SolveStatistics statistics;
+    private Technique technique;
+    private long startTime;
+
+    // Only recorded if set, recording is switched on after the givens are placed and off at the first solution.
+    private SolveTrace trace;
+    private boolean recording;
+
+    public FasterSolver() {
+        for (Technique technique : Technique.values()) {
+            techniqueEnabled[technique.ordinal()] = technique.isEnabledByDefault();
+        }
+    }
+
+    public FasterSolver(BranchStrategy branchStrategy) {
+        this();
+        this.branchStrategy = branchStrategy;
+    }
+
+    /**
+     * Solves the supplied board in place. Empty cells are 0.
+     *
+     * @return true if a solution was found, false if the board has no solution or the solve was cancelled.
+     * @throws CalculationTimeOutException if the time or node limit ran out before the search was done.
+     */
+    public boolean solve(final int[] cells) throws CalculationTimeOutException {
+        try {
+            if (!load(cells)) {
+                return false;
+            }
+
+            if (!search(0)) {
+                return false;
+            }
+        } finally {
+            finishStatistics();
+        }
+
+        System.arraycopy(board, 0, cells, 0, CELLS);
+        return true;
+    }
+
+    /**
+     * Counts the solutions of the supplied board, stopping as soon as the limit is reached. A limit of 2 tells
+     * whether a puzzle has no, exactly one or multiple solutions. Branches are undone from the trail like in a
+     * normal solve, so counting doesn't allocate either. If a solution exists, the first one in search order (the
+     * one solve would return) is written into the board.
+     *
+     * @return the number of solutions, at most limit.
+     * @throws CalculationTimeOutException if the time or node limit ran out before the search was done.
+     */
+    public int countSolutions(final int[] cells, final int limit) throws CalculationTimeOutException {
+        final int solutionCount;
+
+        try {
+            if (!load(cells)) {
+                return 0;
+            }
+
+            solutionCount = countSolutions(limit, 0, 0);
+        } finally {
+            finishStatistics();
+        }
+
+        if (solutionCount > 0) {
+            System.arraycopy(firstSolution, 0, cells, 0, CELLS);
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Places the givens and applies the logical techniques without guessing. The cells that could be filled are
+     * written back into the supplied board, the remaining candidates can be read with getAllowedValues.
+     *
+     * @return false if the board has no solution.
+     */
+    public boolean propagate(final int[] cells) {
+        try {
+            if (!load(cells) || !propagate()) {
+                return false;
+            }
+        } finally {
+            finishStatistics();
+        }
+
+        System.arraycopy(board, 0, cells, 0, CELLS);
+        return true;
+    }
+
+    /**
+     * Returns the cell the branch strategy would guess on next, or -1 if the board is full.
+     */
+    public int selectBranchCell() {
+        if (placedNumberCount == CELLS) {
+            return -1;
+        }
+        return branchStrategy == BranchStrategy.MINIMUM_REMAINING_VALUES ? selectMostConstrainedCell() : selectFirstEmptyCell();
+    }
+
+    /**
+     * Returns the candidate bit field of a cell, bit (value - 1) is set if value is still allowed.
+     */
+    public int getAllowedValues(final int cell) {
+        return allowedValues[cell];
+    }
+
+    /**
+     * Returns the number of guesses made during the last solve.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public BranchStrategy getBranchStrategy() {
+        return branchStrategy;
+    }
+
+    public void setBranchStrategy(BranchStrategy branchStrategy) {
+        this.branchStrategy = branchStrategy;
+    }
+
+    /**
+     * Switches a logical technique on or off for the following solves, so its effect on the number of guesses can be
+     * measured against its cost. Propagation only ever removes candidates that can't be part of any solution, so the
+     * solution that is found doesn't depend on the techniques.
+     *
+     * @throws IllegalArgumentException for GUESS, the brute force phase can't be switched off.
+     */
+    public void setTechniqueEnabled(Technique technique, boolean enabled) {
+        if (technique == Technique.GUESS) {
+            throw new IllegalArgumentException("Guessing can't be switched off");
+        }
+        techniqueEnabled[technique.ordinal()] = enabled;
+    }
+
+    public boolean isTechniqueEnabled(Technique technique) {
+        return techniqueEnabled[technique.ordinal()];
+    }
+
+    /**
+     * Limits every following solve. The clock starts when a solve starts.
+     *
+     * @param maxDurationMillis time a solve may take, 0 for no limit.
+     * @param maxNodeCount      number of guesses a solve may make, 0 for no limit.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * Makes every following solve fill in the supplied statistics, which are reset at the start of each solve.
+     * Pass null to stop collecting.
+     */
+    public void setStatistics(SolveStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public SolveStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Makes every following solve record its placements and backtracks into the supplied trace, which is reset at the
+     * start of each solve. Pass null to stop recording.
+     */
+    public void setTrace(SolveTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Override to stop a running solve. Checked once for every search node.
+     */
+    protected boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Resets the state and places the givens.
+     *
+     * @return false if two givens conflict.
+     */
+    private boolean load(final int[] cells) {
+        for (int i = 0; i < CELLS; i++) {
+            board[i] = 0;
+            allowedValues[i] = ALL_ALLOWED;
+        }
+        for (int i = 0; i < SIZE; i++) {
+            rowMasks[i] = 0;
+            colMasks[i] = 0;
+            boxMasks[i] = 0;
+        }
+        placedNumberCount = 0;
+        trailSize = 0;
+        nodeCount = 0;
+        deadline = maxDurationMillis > 0 ? System.nanoTime() + maxDurationMillis * 1000000 : 0;
+        technique = null;
+        recording = false;
+
+        clearWork();
+        for (int i = 0; i < pendingUnits.length; i++) {
+            pendingUnits[i] = ALL_UNITS;
+        }
+
+        if (statistics != null) {
+            statistics.reset();
+            startTime = System.nanoTime();
+        }
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int value = cells[cell];
+            if (value > 0) {
+                if ((allowedValues[cell] & (1 << (value - 1))) == 0) {
+                    return false;
+                }
+                setValue(cell, value);
+            }
+        }
+
+        if (trace != null) {
+            trace.reset();
+            recording = true;
+        }
+        return true;
+    }
+
+    /**
+     * Branches on the cell picked by the branch strategy, trying its candidates in ascending order.
+     * Propagation only removes candidates that can't be part of any solution, so with FIRST_EMPTY_CELL this finds the
+     * same solution as the original copy-based brute force.
+     */
+    private boolean search(final int depth) throws CalculationTimeOutException {
+        if (!propagate()) {
+            return false;
+        }
+
+        if (placedNumberCount == CELLS) {
+            recording = false;
+            return true;
+        }
+
+        if (isCancelled()) {
+            return false;
+        }
+
+        checkLimits();
+        enterNode(depth);
+
+        final int cell = selectBranchCell();
+
+        final int mark = trailSize;
+        int candidates = allowedValues[cell];
+
+        while (candidates != 0) {
+            final int bit = candidates & -candidates;
+            candidates ^= bit;
+            nodeCount++;
+
+            technique = Technique.GUESS;
+            setValue(cell, SINGLE_VALUE[bit]);
+
+            if (search(depth + 1)) {
+                return true;
+            }
+
+            undo(mark);
+            if (statistics != null) {
+                statistics.backtrackCount++;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Same tree walk as search, but continues after a solution until the limit is reached.
+     *
+     * @param foundBefore number of solutions found before this branch, used to remember the first one.
+     */
+    private int countSolutions(final int limit, final int foundBefore, final int depth) throws CalculationTimeOutException {
+        if (!propagate()) {
+            return 0;
+        }
+
+        if (placedNumberCount == CELLS) {
+            if (foundBefore == 0) {
+                System.arraycopy(board, 0, firstSolution, 0, CELLS);
+                recording = false;
+            }
+            return 1;
+        }
+
+        if (isCancelled()) {
+            return 0;
+        }
+
+        checkLimits();
+        enterNode(depth);
+
+        final int cell = selectBranchCell();
+        final int mark = trailSize;
+        int candidates = allowedValues[cell];
+        int solutionCount = 0;
+
+        while (candidates != 0 && solutionCount < limit) {
+            final int bit = candidates & -candidates;
+            candidates ^= bit;
+            nodeCount++;
+
+            technique = Technique.GUESS;
+            setValue(cell, SINGLE_VALUE[bit]);
+            final int found = countSolutions(limit - solutionCount, foundBefore + solutionCount, depth + 1);
+            undo(mark);
+
+            if (statistics != null && found == 0) {
+                statistics.backtrackCount++;
+            }
+            solutionCount += found;
+        }
+
+        return solutionCount;
+    }
+
+    private void checkLimits() throws CalculationTimeOutException {
+        if ((maxNodeCount > 0 && nodeCount >= maxNodeCount) || (deadline != 0 && System.nanoTime() - deadline > 0)) {
+            throw new CalculationTimeOutException();
+        }
+    }
+
+    private void enterNode(final int depth) {
+        if (statistics != null && depth > statistics.maxDepth) {
+            statistics.maxDepth = depth;
+        }
+    }
+
+    private void finishStatistics() {
+        if (statistics != null) {
+            statistics.nodeCount = nodeCount;
+            statistics.totalNanos = System.nanoTime() - startTime;
+        }
+    }
+
+    private int selectFirstEmptyCell() {
+        int cell = 0;
+        while (board[cell] != 0) {
+            cell++;
+        }
+        return cell;
+    }
+
+    /**
+     * Returns the empty cell with the fewest candidates. Ties are broken by the most constrained unit: the cell whose
+     * row, column or box already holds the most values wins.
+     */
+    private int selectMostConstrainedCell() {
+        int bestCell = -1;
+        int bestCandidateCount = SIZE + 1;
+        int bestPlacedCount = -1;
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (board[cell] == 0) {
+                final int candidateCount = BIT_COUNT[allowedValues[cell]];
+
+                if (candidateCount <= bestCandidateCount) {
+                    final int placedCount = Math.max(BIT_COUNT[rowMasks[ROW[cell]]],
+                            Math.max(BIT_COUNT[colMasks[COLUMN[cell]]], BIT_COUNT[boxMasks[BOX[cell]]]));
+
+                    if (candidateCount < bestCandidateCount || placedCount > bestPlacedCount) {
+                        bestCell = cell;
+                        bestCandidateCount = candidateCount;
+                        bestPlacedCount = placedCount;
+                    }
+                }
+            }
+        }
+
+        return bestCell;
+    }
+
+    /**
+     * Applies the logical techniques until none of them makes progress.
+     *
+     * @return false if the board turned out to be unsolvable.
+     */
+    private boolean propagate() {
+        if (statistics == null) {
+            return propagateUntilStable();
+        }
+
+        final long propagationStart = System.nanoTime();
+        final boolean consistent = propagateUntilStable();
+        statistics.propagationNanos += System.nanoTime() - propagationStart;
+        return consistent;
+    }
+
+    /**
+     * Places singles until there are none left, then runs the elimination techniques from cheap to expensive and goes
+     * back to the singles as soon as one of them removed a candidate. Every technique only looks at the units that
+     * changed since it last ran, so this stops once no candidate was removed since every technique last looked.
+     */
+    private boolean propagateUntilStable() {
+        while (true) {
+            if (!placeSingles()) {
+                return false;
+            }
+
+            if (placedNumberCount == CELLS || !applyEliminations()) {
+                return true;
+            }
+        }
+    }
+
+    private boolean placeSingles() {
+        int placedBefore;
+
+        do {
+            placedBefore = placedNumberCount;
+
+            if (techniqueEnabled[Technique.NAKED_SINGLE.ordinal()]) {
+                technique = Technique.NAKED_SINGLE;
+                if (!moveNothingElseAllowed()) {
+                    return false;
+                }
+            }
+            if (techniqueEnabled[Technique.HIDDEN_SINGLE.ordinal()]) {
+                technique = Technique.HIDDEN_SINGLE;
+                if (!moveNoOtherRowOrColumnAllowed()) {
+                    return false;
+                }
+            }
+            if (techniqueEnabled[Technique.BOX_HIDDEN_SINGLE.ordinal()]) {
+                technique = Technique.BOX_HIDDEN_SINGLE;
+                if (!moveNoOtherBoxCellAllowed()) {
+                    return false;
+                }
+            }
+        } while (placedNumberCount != placedBefore);
+
+        return true;
+    }
+
+    /**
+     * @return true if one of the techniques removed a candidate.
+     */
+    private boolean applyEliminations() {
+        final int trailBefore = trailSize;
+
+        if (techniqueEnabled[Technique.NAKED_PAIR.ordinal()]) {
+            technique = Technique.NAKED_PAIR;
+            applyNakedPairs(takeChangedUnits(technique, LINE_UNITS));
+            if (trailSize != trailBefore) {
+                return true;
+            }
+        }
+        if (techniqueEnabled[Technique.BOX_NAKED_PAIR.ordinal()]) {
+            technique = Technique.BOX_NAKED_PAIR;
+            applyNakedPairs(takeChangedUnits(technique, BOX_UNITS));
+            if (trailSize != trailBefore) {
+                return true;
+            }
+        }
+        if (techniqueEnabled[Technique.LINE_CANDIDATES.ordinal()]) {
+            technique = Technique.LINE_CANDIDATES;
+            applyLineCandidateConstraints(takeChangedUnits(technique, LINE_UNITS));
+            if (trailSize != trailBefore) {
+                return true;
+            }
+        }
+        if (techniqueEnabled[Technique.POINTING.ordinal()]) {
+            technique = Technique.POINTING;
+            applyPointing(takeChangedUnits(technique, BOX_UNITS));
+            if (trailSize != trailBefore) {
+                return true;
+            }
+        }
+        if (techniqueEnabled[Technique.HIDDEN_PAIR.ordinal()]) {
+            technique = Technique.HIDDEN_PAIR;
+            applyHiddenPairs(takeChangedUnits(technique, ALL_UNITS));
+            if (trailSize != trailBefore) {
+                return true;
+            }
+        }
+        if (techniqueEnabled[Technique.X_WING.ordinal()]) {
+            technique = Technique.X_WING;
+            applyXWings(takeChangedUnits(technique, LINE_UNITS));
+        }
+
+        return trailSize != trailBefore;
+    }
+
+    /**
+     * Empties the queue of cells that got down to one candidate, placing them. Only called while naked singles are
+     * enabled, otherwise the queue isn't drained and a cell without candidates is left for the search to run into.
+     *
+     * @return false if a queued cell has no candidates left.
+     */
+    private boolean moveNothingElseAllowed() {
+        while (singleQueueSize > 0) {
+            final int cell = singleQueue[--singleQueueSize];
+            queued[cell] = false;
+
+            if (board[cell] == 0) {
+                final int allowed = allowedValues[cell];
+
+                if (allowed == 0) {
+                    return false;
+                }
+                setValue(cell, SINGLE_VALUE[allowed]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places every digit that fits in only one cell of a changed row or column.
+     */
+    private boolean moveNoOtherRowOrColumnAllowed() {
+        return moveHiddenSingles(takeChangedUnits(Technique.HIDDEN_SINGLE, LINE_UNITS));
+    }
+
+    /**
+     * Places every digit that fits in only one cell of a changed box.
+     */
+    private boolean moveNoOtherBoxCellAllowed() {
+        return moveHiddenSingles(takeChangedUnits(Technique.BOX_HIDDEN_SINGLE, BOX_UNITS));
+    }
+
+    /**
+     * One pass over a unit finds the digits that are allowed at least once and more than once, the difference are the
+     * hidden singles.
+     *
+     * @return false if a digit that isn't placed yet has no cell left in one of the units.
+     */
+    private boolean moveHiddenSingles(int units) {
+        for (; units != 0; units &= units - 1) {
+            final int unit = Integer.numberOfTrailingZeros(units);
+            final int first = unit * SIZE;
+            int once = 0;
+            int twice = 0;
+
+            for (int i = first; i < first + SIZE; i++) {
+                final int allowed = allowedValues[UNIT_CELLS[i]];
+                twice |= once & allowed;
+                once |= allowed;
+            }
+
+            if ((ALL_ALLOWED & ~getUnitMask(unit) & ~once) != 0) {
+                return false;
+            }
+
+            int singles = once & ~twice;
+
+            while (singles != 0) {
+                final int bit = singles & -singles;
+                singles ^= bit;
+
+                // An earlier single in this unit can have taken the only cell of this digit.
+                final int cell = findCell(first, bit);
+                if (cell < 0) {
+                    return false;
+                }
+                setValue(cell, SINGLE_VALUE[bit]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the units of a set that changed since the technique last asked, and marks them as seen.
+     */
+    private int takeChangedUnits(final Technique technique, final int unitSet) {
+        if (changedUnits != 0) {
+            for (int i = 0; i < pendingUnits.length; i++) {
+                pendingUnits[i] |= changedUnits;
+            }
+            changedUnits = 0;
+        }
+
+        final int units = pendingUnits[technique.ordinal()] & unitSet;
+        pendingUnits[technique.ordinal()] &= ~unitSet;
+        return units;
+    }
+
+    private int getUnitMask(final int unit) {
+        if (unit < SIZE) {
+            return rowMasks[unit];
+        }
+        return unit < SIZE * 2 ? colMasks[unit - SIZE] : boxMasks[unit - SIZE * 2];
+    }
+
+    /**
+     * Returns the first cell of the unit starting at the given UNIT_CELLS index that still allows a digit, or -1.
+     */
+    private int findCell(final int first, final int bit) {
+        for (int i = first; i < first + SIZE; i++) {
+            if ((allowedValues[UNIT_CELLS[i]] & bit) != 0) {
+                return UNIT_CELLS[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Two cells of a unit with the same two candidates remove those candidates from the rest of the unit.
+     */
+    private void applyNakedPairs(int units) {
+        for (; units != 0; units &= units - 1) {
+            final int first = Integer.numberOfTrailingZeros(units) * SIZE;
+            final int last = first + SIZE - 1;
+
+            for (int i = first; i <= last; i++) {
+                final int value = allowedValues[UNIT_CELLS[i]];
+
+                if (BIT_COUNT[value] == 2) {
+                    for (int scanning = i + 1; scanning <= last; scanning++) {
+                        if (allowedValues[UNIT_CELLS[scanning]] == value) {
+                            for (int apply = first; apply <= last; apply++) {
+                                if (apply != i && apply != scanning) {
+                                    eliminate(UNIT_CELLS[apply], value);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Two digits that both fit in only the same two cells of a unit take those cells, every other candidate of the two
+     * cells is removed.
+     */
+    private void applyHiddenPairs(int units) {
+        for (; units != 0; units &= units - 1) {
+            final int first = Integer.numberOfTrailingZeros(units) * SIZE;
+
+            for (int digit = 0; digit < SIZE; digit++) {
+                positions[digit] = 0;
+            }
+            for (int i = 0; i < SIZE; i++) {
+                for (int allowed = allowedValues[UNIT_CELLS[first + i]]; allowed != 0; allowed &= allowed - 1) {
+                    positions[SINGLE_VALUE[allowed & -allowed] - 1] |= 1 << i;
+                }
+            }
+
+            for (int digit = 0; digit < SIZE; digit++) {
+                if (BIT_COUNT[positions[digit]] == 2) {
+                    for (int secondDigit = digit + 1; secondDigit < SIZE; secondDigit++) {
+                        if (positions[secondDigit] == positions[digit]) {
+                            final int otherValues = ALL_ALLOWED & ~((1 << digit) | (1 << secondDigit));
+
+                            for (int i = 0; i < SIZE; i++) {
+                                if ((positions[digit] & (1 << i)) != 0) {
+                                    eliminate(UNIT_CELLS[first + i], otherValues);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Line/box interactions within a band of three rows (or a stack of three columns): a line whose candidates for a
+     * digit are confined to one box clears that box for the other two lines, and two lines confined to the same two
+     * boxes clear those boxes for the third line. Only the bands with a changed line are looked at.
+     */
+    private void applyLineCandidateConstraints(final int units) {
+        for (int band = 0; band < SIZE; band += 3) {
+            final boolean rowsChanged = (units & (BAND_LINES << band)) != 0;
+            final boolean columnsChanged = (units & (BAND_LINES << (SIZE + band))) != 0;
+
+            for (int bit = 1; bit <= ALL_ALLOWED; bit <<= 1) {
+                if (rowsChanged) {
+                    applyLineCandidateConstraints(bit, band, SIZE, 1);
+                }
+                if (columnsChanged) {
+                    applyLineCandidateConstraints(bit, band, 1, SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param lineStep   distance between the first cells of two neighbouring lines.
+     * @param cellStep   distance between two neighbouring cells on a line.
+     */
+    private void applyLineCandidateConstraints(final int bit, final int band, final int lineStep, final int cellStep) {
+        for (int line = 0; line < 3; line++) {
+            final int lineStart = (band + line) * lineStep;
+            sections[line] = 0;
+
+            for (int i = 0; i < SIZE; i++) {
+                if ((allowedValues[lineStart + i * cellStep] & bit) != 0) {
+                    sections[line] |= 1 << (i / 3);
+                }
+            }
+        }
+
+        for (int line = 0; line < 3; line++) {
+            final int bitCount = BIT_COUNT[sections[line]];
+
+            if (bitCount == 1) {
+                for (int applyLine = 0; applyLine < 3; applyLine++) {
+                    if (applyLine != line) {
+                        eliminateInSections(bit, (band + applyLine) * lineStep, cellStep, sections[line]);
+                    }
+                }
+            }
+
+            if (bitCount == 2) {
+                for (int secondLine = line + 1; secondLine < 3; secondLine++) {
+                    if (sections[line] == sections[secondLine]) {
+                        final int applyLine = 3 - line - secondLine;
+                        eliminateInSections(bit, (band + applyLine) * lineStep, cellStep, sections[line]);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void eliminateInSections(final int bit, final int lineStart, final int cellStep, final int sectionMask) {
+        for (int section = 0; section < 3; section++) {
+            if ((sectionMask & (1 << section)) != 0) {
+                for (int i = section * 3; i < section * 3 + 3; i++) {
+                    eliminate(lineStart + i * cellStep, bit);
+                }
+            }
+        }
+    }
+
+    /**
+     * A box whose candidates for a digit all lie on one row or column clears that line outside the box.
+     */
+    private void applyPointing(int units) {
+        for (; units != 0; units &= units - 1) {
+            final int unit = Integer.numberOfTrailingZeros(units);
+            final int box = unit - SIZE * 2;
+            final int first = unit * SIZE;
+
+            for (int open = ALL_ALLOWED & ~boxMasks[box]; open != 0; open &= open - 1) {
+                final int bit = open & -open;
+                int rows = 0;
+                int cols = 0;
+
+                for (int i = first; i < first + SIZE; i++) {
+                    final int cell = UNIT_CELLS[i];
+                    if ((allowedValues[cell] & bit) != 0) {
+                        rows |= 1 << ROW[cell];
+                        cols |= 1 << COLUMN[cell];
+                    }
+                }
+
+                if (BIT_COUNT[rows] == 1) {
+                    eliminateOutsideBox(bit, (SINGLE_VALUE[rows] - 1) * SIZE, box);
+                }
+                if (BIT_COUNT[cols] == 1) {
+                    eliminateOutsideBox(bit, (SIZE + SINGLE_VALUE[cols] - 1) * SIZE, box);
+                }
+            }
+        }
+    }
+
+    private void eliminateOutsideBox(final int bit, final int first, final int box) {
+        for (int i = first; i < first + SIZE; i++) {
+            if (BOX[UNIT_CELLS[i]] != box) {
+                eliminate(UNIT_CELLS[i], bit);
+            }
+        }
+    }
+
+    /**
+     * Two rows whose candidates for a digit lie in the same two columns clear those columns for every other row, and
+     * the same with rows and columns swapped. A wing can involve any two lines, so one changed row means all rows are
+     * looked at again.
+     */
+    private void applyXWings(final int units) {
+        final boolean rowsChanged = (units & ((1 << SIZE) - 1)) != 0;
+        final boolean columnsChanged = (units >>> SIZE) != 0;
+
+        for (int bit = 1; bit <= ALL_ALLOWED; bit <<= 1) {
+            if (rowsChanged) {
+                applyXWings(bit, 0);
+            }
+            if (columnsChanged) {
+                applyXWings(bit, SIZE);
+            }
+        }
+    }
+
+    /**
+     * @param firstUnit 0 to look at the rows, SIZE for the columns.
+     */
+    private void applyXWings(final int bit, final int firstUnit) {
+        for (int line = 0; line < SIZE; line++) {
+            final int first = (firstUnit + line) * SIZE;
+            positions[line] = 0;
+
+            for (int i = 0; i < SIZE; i++) {
+                if ((allowedValues[UNIT_CELLS[first + i]] & bit) != 0) {
+                    positions[line] |= 1 << i;
+                }
+            }
+        }
+
+        for (int line = 0; line < SIZE; line++) {
+            if (BIT_COUNT[positions[line]] == 2) {
+                for (int secondLine = line + 1; secondLine < SIZE; secondLine++) {
+                    if (positions[secondLine] == positions[line]) {
+                        for (int applyLine = 0; applyLine < SIZE; applyLine++) {
+                            if (applyLine != line && applyLine != secondLine) {
+                                final int first = (firstUnit + applyLine) * SIZE;
+
+                                for (int i = 0; i < SIZE; i++) {
+                                    if ((positions[line] & (1 << i)) != 0) {
+                                        eliminate(UNIT_CELLS[first + i], bit);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a value and removes it from the candidates of its 20 peers.
+     */
+    private void setValue(final int cell, final int value) {
+        final int bit = 1 << (value - 1);
+
+        trailCells[trailSize] = cell | PLACED;
+        trailAllowedValues[trailSize] = allowedValues[cell];
+        trailSize++;
+
+        board[cell] = value;
+        allowedValues[cell] = 0;
+        rowMasks[ROW[cell]] |= bit;
+        colMasks[COLUMN[cell]] |= bit;
+        boxMasks[BOX[cell]] |= bit;
+        placedNumberCount++;
+        changedUnits |= CELL_UNIT_BITS[cell];
+
+        if (statistics != null && technique != null) {
+            statistics.placements[technique.ordinal()]++;
+        }
+        if (recording) {
+            trace.place(cell, value);
+        }
+
+        final int firstPeer = cell * SudokuTables.PEER_COUNT;
+        for (int i = firstPeer; i < firstPeer + SudokuTables.PEER_COUNT; i++) {
+            eliminate(PEERS[i], bit);
+        }
+    }
+
+    /**
+     * Removes candidates from a cell, marks its units as changed and queues it if one or no candidate is left.
+     */
+    private void eliminate(final int cell, final int bits) {
+        final int allowed = allowedValues[cell];
+
+        if ((allowed & bits) != 0) {
+            final int remaining = allowed & ~bits;
+
+            trailCells[trailSize] = cell;
+            trailAllowedValues[trailSize] = allowed;
+            trailSize++;
+            allowedValues[cell] = remaining;
+            changedUnits |= CELL_UNIT_BITS[cell];
+
+            if ((remaining & (remaining - 1)) == 0 && !queued[cell]) {
+                queued[cell] = true;
+                singleQueue[singleQueueSize++] = cell;
+            }
+
+            if (statistics != null && technique != null) {
+                statistics.eliminations[technique.ordinal()] += BIT_COUNT[allowed & bits];
+            }
+        }
+    }
+
+    /**
+     * Reverts every change made after the trail had the given size. The search only marks the trail after a
+     * propagation that finished, so the pending work of the undone branch can be dropped.
+     */
+    private void undo(final int mark) {
+        clearWork();
+        int removedCount = 0;
+
+        while (trailSize > mark) {
+            trailSize--;
+            final int entry = trailCells[trailSize];
+            final int cell = entry & ~PLACED;
+
+            if (entry != cell) {
+                final int bit = ~(1 << (board[cell] - 1));
+
+                rowMasks[ROW[cell]] &= bit;
+                colMasks[COLUMN[cell]] &= bit;
+                boxMasks[BOX[cell]] &= bit;
+                board[cell] = 0;
+                placedNumberCount--;
+                removedCount++;
+            }
+
+            allowedValues[cell] = trailAllowedValues[trailSize];
+        }
+
+        if (recording && removedCount > 0) {
+            trace.undo(removedCount);
+        }
+    }
+
+    private void clearWork() {
+        while (singleQueueSize > 0) {
+            queued[singleQueue[--singleQueueSize]] = false;
+        }
+        changedUnits = 0;
+
+        for (int i = 0; i < pendingUnits.length; i++) {
+            pendingUnits[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,662 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+/**
+ * Solver for grids of any box size: 9x9 (box size 3), 16x16 (4), 25x25 (5), up to box size 8 (64 digits).
+ * Works like the FasterSolver: a flat board (index = x * size + y), a candidate bit field per cell, a digit mask per
+ * row, column and box, and an undo trail so a search node doesn't allocate anything. Candidates are kept in a long
+ * so every size up to 64 digits shares the same code. The row, column and box cells of every unit and the peers of
+ * every cell are worked out once in the constructor.
+ * Uses the same techniques as the FasterSolver, applied to boxes as well as to lines: the bigger grids depend on box
+ * hidden singles to stay fast.
+ * On big grids an unlucky early guess can trap the search in a huge subtree without a solution. With
+ * MINIMUM_REMAINING_VALUES, ties between equally constrained cells are broken pseudo-randomly and the search restarts
+ * with a 50% bigger node budget whenever the budget runs out. The tie-breaks are seeded the same for every solve, so
+ * results are reproducible.
+ * This is a separate copy of the FasterSolver on purpose, so the 9x9 solver keeps its int candidates and fixed
+ * tables. It only has naked and hidden singles, naked pairs and the line/box interactions: the pointing, hidden pair
+ * and X-wing steps, the Technique switches, SolveStatistics, SolveTrace recording and the CachingSolver are left
+ * out, as are the hooks the ParallelSolver and the DifficultyGrader use. The time and node limits are checked before
+ * every guess as in the FasterSolver, and the node limit also counts the guesses made before a restart. BatchSolver
+ * -box runs it on files of bigger grids.
+ */
+public class GeneralizedSolver {
+
+    public static final int MIN_BOX_SIZE = 2;
+    public static final int MAX_BOX_SIZE = 8;
+
+    // Marks a trail entry as a placement instead of a candidate elimination. Cell indexes stay below 64 * 64.
+    private static final int PLACED = 1 << 16;
+
+    private static final long FIRST_RESTART_NODE_COUNT = 1000;
+    private static final long RANDOM_SEED = 0x9E3779B97F4A7C15L;
+
+    private final int boxSize;
+    private final int size;
+    private final int cellCount;
+    private final long allAllowed;
+
+    // Units 0 to size - 1 are the rows, then the columns, then the boxes. Line cells are stored in order.
+    private final int[][] units;
+    private final int[][] cellUnits;
+    private final int[][] peers;
+
+    private final int[] board;
+    private final long[] allowedValues;
+    private final long[] unitMasks;
+    private int placedNumberCount;
+
+    private final int[] trailCells;
+    private final long[] trailAllowedValues;
+    private int trailSize;
+
+    // First solution found while counting.
+    private final int[] firstSolution;
+
+    // Scratch space for the line/box interactions, kept here so propagation doesn't allocate.
+    private final int[] sections;
+
+    private FasterSolver.BranchStrategy branchStrategy = FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+    private long nodeCount;
+
+    // Limits for a single solve, 0 means unlimited. Checked once for every search node.
+    private long maxDurationMillis;
+    private long maxNodeCount;
+    private long deadline;
+
+    private long restartNodeCount;
+    private long restartBudget;
+    private boolean restarting;
+    private long random;
+
+    /**
+     * @param boxSize width of a box: 3 for a normal Sudoku, 4 for 16x16, 5 for 25x25.
+     */
+    public GeneralizedSolver(int boxSize) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE) {
+            throw new IllegalArgumentException("Box size must be between " + MIN_BOX_SIZE + " and " + MAX_BOX_SIZE);
+        }
+
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.cellCount = size * size;
+        this.allAllowed = size == 64 ? -1L : (1L << size) - 1;
+
+        units = new int[size * 3][size];
+        cellUnits = new int[cellCount][3];
+        peers = new int[cellCount][];
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int x = cell / size;
+            final int y = cell % size;
+            final int box = (x / boxSize) * boxSize + y / boxSize;
+            final int boxIndex = (x % boxSize) * boxSize + y % boxSize;
+
+            units[x][y] = cell;
+            units[size + y][x] = cell;
+            units[size * 2 + box][boxIndex] = cell;
+
+            cellUnits[cell][0] = x;
+            cellUnits[cell][1] = size + y;
+            cellUnits[cell][2] = size * 2 + box;
+        }
+
+        // Every cell sees the other cells of its row and column and the box cells outside that row and column.
+        final int peerCount = (size - 1) * 2 + (boxSize - 1) * (boxSize - 1);
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int x = cell / size;
+            final int y = cell % size;
+            peers[cell] = new int[peerCount];
+
+            int peer = 0;
+            for (int other = 0; other < cellCount; other++) {
+                final int otherX = other / size;
+                final int otherY = other % size;
+
+                if (other != cell && (otherX == x || otherY == y
+                        || (otherX / boxSize == x / boxSize && otherY / boxSize == y / boxSize))) {
+                    peers[cell][peer++] = other;
+                }
+            }
+        }
+
+        board = new int[cellCount];
+        allowedValues = new long[cellCount];
+        unitMasks = new long[size * 3];
+
+        // Every trail entry removes at least one candidate bit, so this can never overflow.
+        trailCells = new int[cellCount * size];
+        trailAllowedValues = new long[cellCount * size];
+
+        firstSolution = new int[cellCount];
+        sections = new int[boxSize];
+    }
+
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Returns the width of the grid, which is also the number of digits.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Solves the supplied board (size * size cells) in place. Empty cells are 0.
+     *
+     * @return true if a solution was found, false if the board has no solution or the solve was cancelled.
+     * @throws CalculationTimeOutException if the time or node limit ran out before the search was done.
+     */
+    public boolean solve(final int[] cells) throws CalculationTimeOutException {
+        startSolve();
+
+        while (true) {
+            if (!load(cells)) {
+                return false;
+            }
+
+            final boolean solved = search();
+
+            if (!restarting) {
+                if (!solved) {
+                    return false;
+                }
+                System.arraycopy(board, 0, cells, 0, cellCount);
+                return true;
+            }
+            nextRestart();
+        }
+    }
+
+    /**
+     * Counts the solutions of the supplied board, stopping as soon as the limit is reached. If a solution exists, the
+     * first one in search order is written into the board.
+     *
+     * @return the number of solutions, at most limit.
+     * @throws CalculationTimeOutException if the time or node limit ran out before the search was done.
+     */
+    public int countSolutions(final int[] cells, final int limit) throws CalculationTimeOutException {
+        startSolve();
+        int solutionCount;
+
+        while (true) {
+            if (!load(cells)) {
+                return 0;
+            }
+
+            solutionCount = countSolutions(limit, 0);
+
+            if (!restarting) {
+                break;
+            }
+            nextRestart();
+        }
+
+        if (solutionCount > 0) {
+            System.arraycopy(firstSolution, 0, cells, 0, cellCount);
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Returns the number of guesses made during the last solve, including the ones before a restart.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public FasterSolver.BranchStrategy getBranchStrategy() {
+        return branchStrategy;
+    }
+
+    public void setBranchStrategy(FasterSolver.BranchStrategy branchStrategy) {
+        this.branchStrategy = branchStrategy;
+    }
+
+    /**
+     * Limits every following solve. The clock starts when a solve starts.
+     *
+     * @param maxDurationMillis time a solve may take, 0 for no limit.
+     * @param maxNodeCount      number of guesses a solve may make, 0 for no limit.
+     */
+    public void setLimits(long maxDurationMillis, long maxNodeCount) {
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxNodeCount = maxNodeCount;
+    }
+
+    /**
+     * Override to stop a running solve. Checked once for every search node.
+     */
+    protected boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Resets the state and places the givens.
+     *
+     * @return false if two givens conflict or a given is out of range.
+     */
+    private boolean load(final int[] cells) {
+        if (cells.length != cellCount) {
+            throw new IllegalArgumentException("Expected " + cellCount + " cells, got " + cells.length);
+        }
+
+        for (int i = 0; i < cellCount; i++) {
+            board[i] = 0;
+            allowedValues[i] = allAllowed;
+        }
+        for (int i = 0; i < unitMasks.length; i++) {
+            unitMasks[i] = 0;
+        }
+        placedNumberCount = 0;
+        trailSize = 0;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int value = cells[cell];
+            if (value != 0) {
+                if (value < 0 || value > size || (allowedValues[cell] & (1L << (value - 1))) == 0) {
+                    return false;
+                }
+                setValue(cell, value);
+            }
+        }
+        return true;
+    }
+
+    private void startSolve() {
+        nodeCount = 0;
+        deadline = maxDurationMillis > 0 ? System.nanoTime() + maxDurationMillis * 1000000 : 0;
+        random = RANDOM_SEED;
+        restartBudget = FIRST_RESTART_NODE_COUNT;
+        restartNodeCount = branchStrategy == FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES
+                ? restartBudget : Long.MAX_VALUE;
+        restarting = false;
+    }
+
+    private void nextRestart() {
+        restartBudget += restartBudget / 2;
+        restartNodeCount = nodeCount + restartBudget;
+        restarting = false;
+    }
+
+    /**
+     * Checks the limits and the restart budget before a new guess.
+     *
+     * @return false if the search has to restart.
+     */
+    private boolean mayBranch() throws CalculationTimeOutException {
+        if ((maxNodeCount > 0 && nodeCount >= maxNodeCount) || (deadline != 0 && System.nanoTime() - deadline > 0)) {
+            throw new CalculationTimeOutException();
+        }
+
+        if (nodeCount >= restartNodeCount) {
+            restarting = true;
+        }
+        return !restarting;
+    }
+
+    private boolean search() throws CalculationTimeOutException {
+        if (!propagate()) {
+            return false;
+        }
+
+        if (placedNumberCount == cellCount) {
+            return true;
+        }
+
+        if (isCancelled() || !mayBranch()) {
+            return false;
+        }
+
+        final int cell = selectBranchCell();
+        final int mark = trailSize;
+        long candidates = allowedValues[cell];
+
+        while (candidates != 0) {
+            final long bit = candidates & -candidates;
+            candidates ^= bit;
+            nodeCount++;
+
+            setValue(cell, Long.numberOfTrailingZeros(bit) + 1);
+
+            if (search()) {
+                return true;
+            }
+            if (restarting) {
+                return false;
+            }
+
+            undo(mark);
+        }
+
+        return false;
+    }
+
+    /**
+     * Same tree walk as search, but continues after a solution until the limit is reached.
+     *
+     * @param foundBefore number of solutions found before this branch, used to remember the first one.
+     */
+    private int countSolutions(final int limit, final int foundBefore) throws CalculationTimeOutException {
+        if (!propagate()) {
+            return 0;
+        }
+
+        if (placedNumberCount == cellCount) {
+            if (foundBefore == 0) {
+                System.arraycopy(board, 0, firstSolution, 0, cellCount);
+            }
+            return 1;
+        }
+
+        if (isCancelled() || !mayBranch()) {
+            return 0;
+        }
+
+        final int cell = selectBranchCell();
+        final int mark = trailSize;
+        long candidates = allowedValues[cell];
+        int solutionCount = 0;
+
+        while (candidates != 0 && solutionCount < limit) {
+            final long bit = candidates & -candidates;
+            candidates ^= bit;
+            nodeCount++;
+
+            setValue(cell, Long.numberOfTrailingZeros(bit) + 1);
+            solutionCount += countSolutions(limit - solutionCount, foundBefore + solutionCount);
+            if (restarting) {
+                return 0;
+            }
+            undo(mark);
+        }
+
+        return solutionCount;
+    }
+
+    private int selectBranchCell() {
+        if (branchStrategy == FasterSolver.BranchStrategy.FIRST_EMPTY_CELL) {
+            int cell = 0;
+            while (board[cell] != 0) {
+                cell++;
+            }
+            return cell;
+        }
+
+        int bestCell = -1;
+        int bestCandidateCount = size + 1;
+        int tieCount = 0;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board[cell] == 0) {
+                final int candidateCount = Long.bitCount(allowedValues[cell]);
+
+                if (candidateCount < bestCandidateCount) {
+                    bestCell = cell;
+                    bestCandidateCount = candidateCount;
+                    tieCount = 1;
+                } else if (candidateCount == bestCandidateCount) {
+                    // Every tied cell gets picked with the same chance, using a xorshift generator.
+                    tieCount++;
+                    random ^= random << 13;
+                    random ^= random >>> 7;
+                    random ^= random << 17;
+
+                    if ((random >>> 33) % tieCount == 0) {
+                        bestCell = cell;
+                    }
+                }
+            }
+        }
+
+        return bestCell;
+    }
+
+    /**
+     * Applies the logical techniques until none of them makes progress.
+     *
+     * @return false if the board turned out to be unsolvable.
+     */
+    private boolean propagate() {
+        boolean changed = true;
+
+        while (changed) {
+            final int placedBefore = placedNumberCount;
+
+            if (!moveNothingElseAllowed() || !moveNoOtherUnitCellAllowed()) {
+                return false;
+            }
+
+            changed = placedNumberCount != placedBefore;
+
+            if (!changed && placedNumberCount < cellCount) {
+                final int trailBefore = trailSize;
+                applyNakedPairs();
+                applyLineCandidateConstraints();
+                changed = trailSize != trailBefore;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Places every cell that has only one candidate left.
+     */
+    private boolean moveNothingElseAllowed() {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board[cell] == 0) {
+                final long allowed = allowedValues[cell];
+
+                if (allowed == 0) {
+                    return false;
+                }
+                if ((allowed & (allowed - 1)) == 0) {
+                    setValue(cell, Long.numberOfTrailingZeros(allowed) + 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places every digit that fits in only one cell of a row, column or box. One pass over a unit finds the digits
+     * that are allowed at least once and more than once, the difference are the hidden singles.
+     */
+    private boolean moveNoOtherUnitCellAllowed() {
+        for (int unit = 0; unit < units.length; unit++) {
+            final int[] unitCells = units[unit];
+            long once = 0;
+            long twice = 0;
+
+            for (int i = 0; i < size; i++) {
+                final long allowed = allowedValues[unitCells[i]];
+                twice |= once & allowed;
+                once |= allowed;
+            }
+
+            if ((allAllowed & ~unitMasks[unit] & ~once) != 0) {
+                return false;
+            }
+
+            long singles = once & ~twice;
+
+            while (singles != 0) {
+                final long bit = singles & -singles;
+                singles ^= bit;
+
+                // An earlier single in this unit can have taken the only cell of this digit.
+                if ((unitMasks[unit] & bit) == 0) {
+                    final int cell = findCell(unitCells, bit);
+                    if (cell < 0) {
+                        return false;
+                    }
+                    setValue(cell, Long.numberOfTrailingZeros(bit) + 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    private int findCell(final int[] unitCells, final long bit) {
+        for (int i = 0; i < size; i++) {
+            if ((allowedValues[unitCells[i]] & bit) != 0) {
+                return unitCells[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Two cells of a unit with the same two candidates remove those candidates from the rest of the unit.
+     */
+    private void applyNakedPairs() {
+        for (int unit = 0; unit < units.length; unit++) {
+            final int[] unitCells = units[unit];
+
+            for (int i = 0; i < size; i++) {
+                final long value = allowedValues[unitCells[i]];
+
+                if (Long.bitCount(value) == 2) {
+                    for (int j = i + 1; j < size; j++) {
+                        if (allowedValues[unitCells[j]] == value) {
+                            for (int k = 0; k < size; k++) {
+                                if (k != i && k != j) {
+                                    eliminate(unitCells[k], value);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Line/box interactions within a band of rows (or a stack of columns): if the candidates for a digit on k lines
+     * of a band are confined to the same k boxes, those boxes are cleared for the other lines of the band. With k = 1
+     * this is a line pointing into a single box.
+     */
+    private void applyLineCandidateConstraints() {
+        for (int value = 1; value <= size; value++) {
+            final long bit = 1L << (value - 1);
+
+            for (int band = 0; band < boxSize; band++) {
+                applyLineCandidateConstraints(bit, band * boxSize);
+                applyLineCandidateConstraints(bit, size + band * boxSize);
+            }
+        }
+    }
+
+    /**
+     * @param firstLine unit index of the first row or column of the band.
+     */
+    private void applyLineCandidateConstraints(final long bit, final int firstLine) {
+        for (int line = 0; line < boxSize; line++) {
+            final int[] lineCells = units[firstLine + line];
+            sections[line] = 0;
+
+            for (int i = 0; i < size; i++) {
+                if ((allowedValues[lineCells[i]] & bit) != 0) {
+                    sections[line] |= 1 << (i / boxSize);
+                }
+            }
+        }
+
+        for (int line = 0; line < boxSize; line++) {
+            final int sectionMask = sections[line];
+            final int bitCount = Integer.bitCount(sectionMask);
+
+            if (bitCount == 0 || bitCount == boxSize) {
+                continue;
+            }
+
+            int confinedLines = 0;
+            for (int other = 0; other < boxSize; other++) {
+                if (sections[other] != 0 && (sections[other] & ~sectionMask) == 0) {
+                    confinedLines++;
+                }
+            }
+
+            if (confinedLines >= bitCount) {
+                for (int applyLine = 0; applyLine < boxSize; applyLine++) {
+                    if ((sections[applyLine] & ~sectionMask) != 0) {
+                        eliminateInSections(bit, units[firstLine + applyLine], sectionMask);
+                    }
+                }
+            }
+        }
+    }
+
+    private void eliminateInSections(final long bit, final int[] lineCells, final int sectionMask) {
+        for (int section = 0; section < boxSize; section++) {
+            if ((sectionMask & (1 << section)) != 0) {
+                for (int i = section * boxSize; i < (section + 1) * boxSize; i++) {
+                    eliminate(lineCells[i], bit);
+                }
+            }
+        }
+    }
+
+    /**
+     * Places a value and removes it from the candidates of every peer.
+     */
+    private void setValue(final int cell, final int value) {
+        final long bit = 1L << (value - 1);
+        final int[] unitsOfCell = cellUnits[cell];
+
+        trailCells[trailSize] = cell | PLACED;
+        trailAllowedValues[trailSize] = allowedValues[cell];
+        trailSize++;
+
+        board[cell] = value;
+        allowedValues[cell] = 0;
+        unitMasks[unitsOfCell[0]] |= bit;
+        unitMasks[unitsOfCell[1]] |= bit;
+        unitMasks[unitsOfCell[2]] |= bit;
+        placedNumberCount++;
+
+        final int[] peersOfCell = peers[cell];
+        for (int i = 0; i < peersOfCell.length; i++) {
+            eliminate(peersOfCell[i], bit);
+        }
+    }
+
+    private void eliminate(final int cell, final long bits) {
+        final long allowed = allowedValues[cell];
+
+        if ((allowed & bits) != 0) {
+            trailCells[trailSize] = cell;
+            trailAllowedValues[trailSize] = allowed;
+            trailSize++;
+            allowedValues[cell] = allowed & ~bits;
+        }
+    }
+
+    /**
+     * Reverts every change made after the trail had the given size.
+     */
+    private void undo(final int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            final int entry = trailCells[trailSize];
+            final int cell = entry & ~PLACED;
+
+            if (entry != cell) {
+                final long bit = ~(1L << (board[cell] - 1));
+                final int[] unitsOfCell = cellUnits[cell];
+
+                unitMasks[unitsOfCell[0]] &= bit;
+                unitMasks[unitsOfCell[1]] &= bit;
+                unitMasks[unitsOfCell[2]] &= bit;
+                board[cell] = 0;
+                placedNumberCount--;
+            }
+
+            allowedValues[cell] = trailAllowedValues[trailSize];
+        }
+    }
+}
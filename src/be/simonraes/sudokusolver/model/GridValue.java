@@ -1,55 +0,0 @@
-package be.simonraes.sudokusolver.model;
-
-/**
- * Contains the content of 1 cell.
- * Created by Simon Raes on 14/09/2014.
- */
-public class GridValue {
-
-    int value;
-    private boolean input, error, solution, hint;
-
-    public GridValue(int value) {
-        this.value = value;
-    }
-
-    public int getValue() {
-        return value;
-    }
-
-    public void setValue(int value) {
-        this.value = value;
-    }
-
-    public boolean isInput() {
-        return input;
-    }
-
-    public void setInput(boolean input) {
-        this.input = input;
-    }
-
-    public boolean isError() {
-        return error;
-    }
-
-    public void setError(boolean error) {
-        this.error = error;
-    }
-
-    public boolean isSolution() {
-        return solution;
-    }
-
-    public void setSolution(boolean solution) {
-        this.solution = solution;
-    }
-
-    public boolean isHint() {
-        return hint;
-    }
-
-    public void setHint(boolean hint) {
-        this.hint = hint;
-    }
-}
@@ -0,0 +1,170 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+import java.util.Random;
+
+/**
+ * Generates puzzles with exactly one solution. A random full grid is made by filling the three independent diagonal
+ * boxes with shuffled digits and solving the rest. Clues are then removed in random order, every removal is kept only
+ * if countSolutions still stops at one. A removal that fails once fails on every later board as well (removing more
+ * clues can't take solutions away), so a single pass over the cells is enough.
+ * Not thread safe, keep one per thread.
+ */
+public class PuzzleGenerator {
+
+    /**
+     * Pattern the clues of a puzzle follow. Cells that map onto each other are removed together.
+     */
+    public enum Symmetry {
+        NONE, ROTATIONAL, MIRROR, DIAGONAL;
+
+        /**
+         * Returns the cell the supplied one maps onto, index = x * 9 + y.
+         */
+        public int map(final int cell) {
+            final int x = cell / SudokuTables.SIZE;
+            final int y = cell % SudokuTables.SIZE;
+
+            switch (this) {
+                case ROTATIONAL:
+                    return (SudokuTables.SIZE - 1 - x) * SudokuTables.SIZE + SudokuTables.SIZE - 1 - y;
+                case MIRROR:
+                    return x * SudokuTables.SIZE + SudokuTables.SIZE - 1 - y;
+                case DIAGONAL:
+                    return y * SudokuTables.SIZE + x;
+                default:
+                    return cell;
+            }
+        }
+    }
+
+    private final Random random;
+    private final FasterSolver solver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES);
+    private Symmetry symmetry = Symmetry.NONE;
+    private int targetClueCount;
+    private long nodeCount;
+
+    private final int[] order = new int[SudokuTables.CELLS];
+    private final int[] scratch = new int[SudokuTables.CELLS];
+    private final int[] digits = new int[SudokuTables.SIZE];
+
+    public PuzzleGenerator(Random random) {
+        this.random = random;
+    }
+
+    public void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * Clue count the generator removes down to, 0 to keep removing until no clue can go.
+     * With a symmetry two clues are removed at a time, so the puzzle can end up one clue below the target.
+     */
+    public void setTargetClueCount(int targetClueCount) {
+        this.targetClueCount = targetClueCount;
+    }
+
+    /**
+     * Generates one puzzle into the supplied flat board (index = x * 9 + y), empty cells are 0.
+     *
+     * @return false if no clue could be removed anymore before the target clue count was reached. The board then
+     * still holds a valid unique puzzle, only with more clues than asked for.
+     */
+    public boolean generate(final int[] cells) {
+        nodeCount = 0;
+        fillGrid(cells);
+
+        int clueCount = SudokuTables.CELLS;
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            order[i] = i;
+        }
+        shuffle(order, SudokuTables.CELLS);
+
+        for (int i = 0; i < SudokuTables.CELLS && clueCount > targetClueCount; i++) {
+            final int cell = order[i];
+            final int mirror = symmetry.map(cell);
+
+            // The other cell of the pair is tried when its own turn comes, or was already emptied.
+            if (cells[cell] == 0 || cells[mirror] == 0) {
+                continue;
+            }
+
+            final int value = cells[cell];
+            final int mirrorValue = cells[mirror];
+            cells[cell] = 0;
+            cells[mirror] = 0;
+
+            if (isUnique(cells)) {
+                clueCount -= cell == mirror ? 1 : 2;
+            } else {
+                cells[cell] = value;
+                cells[mirror] = mirrorValue;
+            }
+        }
+
+        return clueCount <= targetClueCount || targetClueCount == 0;
+    }
+
+    /**
+     * Returns the number of guesses made during the last generate, grid fill and uniqueness checks together.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    private boolean isUnique(final int[] cells) {
+        System.arraycopy(cells, 0, scratch, 0, SudokuTables.CELLS);
+        try {
+            return solver.countSolutions(scratch, 2) == 1;
+        } catch (CalculationTimeOutException e) {
+            // The solver doesn't have any limits set.
+            throw new IllegalStateException(e);
+        } finally {
+            nodeCount += solver.getNodeCount();
+        }
+    }
+
+    /**
+     * Fills the board with a random full grid. The diagonal boxes don't share a row or column, so any digits in them
+     * can be completed.
+     */
+    private void fillGrid(final int[] cells) {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            cells[i] = 0;
+        }
+
+        for (int box = 0; box < SudokuTables.BOX_SIZE; box++) {
+            for (int i = 0; i < SudokuTables.SIZE; i++) {
+                digits[i] = i + 1;
+            }
+            shuffle(digits, SudokuTables.SIZE);
+
+            final int corner = box * SudokuTables.BOX_SIZE;
+            for (int i = 0; i < SudokuTables.SIZE; i++) {
+                final int x = corner + i / SudokuTables.BOX_SIZE;
+                final int y = corner + i % SudokuTables.BOX_SIZE;
+                cells[x * SudokuTables.SIZE + y] = digits[i];
+            }
+        }
+
+        try {
+            if (!solver.solve(cells)) {
+                throw new IllegalStateException("Diagonal boxes can always be completed");
+            }
+        } catch (CalculationTimeOutException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            nodeCount += solver.getNodeCount();
+        }
+    }
+
+    private void shuffle(final int[] values, final int length) {
+        for (int i = length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+}
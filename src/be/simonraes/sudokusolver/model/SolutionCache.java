@@ -0,0 +1,85 @@
+package be.simonraes.sudokusolver.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of solved puzzles that drops the least recently used one when it is full. Puzzles are keyed by their
+ * canonical form (see Canonicalizer), so a puzzle also hits when a relabelled, reordered or transposed version of it
+ * was solved before. Filled and read by CachingSolver. Thread safe, one cache can be shared by every solver.
+ */
+public class SolutionCache {
+
+    /**
+     * The answer for one canonical puzzle.
+     */
+    static class Entry {
+        final int solutionCount;
+        // The limit the solutions were counted with, a count below it is exact.
+        final int limit;
+        // The first solution of the canonical puzzle, null if there is none.
+        final int[] solution;
+
+        Entry(int solutionCount, int limit, int[] solution) {
+            this.solutionCount = solutionCount;
+            this.limit = limit;
+            this.solution = solution;
+        }
+
+        boolean answers(int limit) {
+            return solutionCount < this.limit || limit <= this.limit;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long hitCount;
+    private long missCount;
+
+    public SolutionCache(final int capacity) {
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the entry for a canonical puzzle if it can answer a count up to the given limit, and counts the lookup
+     * as a hit or a miss.
+     */
+    synchronized Entry get(String key, int limit) {
+        final Entry entry = entries.get(key);
+
+        if (entry != null && entry.answers(limit)) {
+            hitCount++;
+            return entry;
+        }
+        missCount++;
+        return null;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that had to be solved. Puzzles too symmetrical to canonicalize skip the cache and
+     * aren't counted.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
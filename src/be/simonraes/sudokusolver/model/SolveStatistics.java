@@ -0,0 +1,113 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Counters collected during one solve, to find out which part of the solver a slow puzzle spends its time in.
+ * A solver only fills these if statistics were handed to it, see FasterSolver.setStatistics.
+ * Values placed and candidates removed by the givens themselves aren't counted.
+ */
+public class SolveStatistics {
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    // Written directly by the solvers in this package.
+    long nodeCount;
+    long backtrackCount;
+    int maxDepth;
+    final long[] placements = new long[TECHNIQUES.length];
+    final long[] eliminations = new long[TECHNIQUES.length];
+    long propagationNanos;
+    long totalNanos;
+
+    /**
+     * Returns the number of guesses.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of guesses that turned out to be wrong and were undone.
+     */
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    /**
+     * Returns the highest number of nested guesses.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of cells filled in by a technique, including the ones that were undone later.
+     */
+    public long getPlacements(Technique technique) {
+        return placements[technique.ordinal()];
+    }
+
+    /**
+     * Returns the number of candidates removed by a technique. Candidates removed from the row, column and box of a
+     * placed value count for the technique that placed it.
+     */
+    public long getEliminations(Technique technique) {
+        return eliminations[technique.ordinal()];
+    }
+
+    public long getPropagationNanos() {
+        return propagationNanos;
+    }
+
+    /**
+     * Returns the time spent outside of propagation: picking branch cells, guessing and undoing.
+     */
+    public long getSearchNanos() {
+        return totalNanos - propagationNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void reset() {
+        nodeCount = 0;
+        backtrackCount = 0;
+        maxDepth = 0;
+        propagationNanos = 0;
+        totalNanos = 0;
+
+        for (int i = 0; i < TECHNIQUES.length; i++) {
+            placements[i] = 0;
+            eliminations[i] = 0;
+        }
+    }
+
+    /**
+     * Adds the counters of another solve to these, the max depth becomes the highest of both.
+     */
+    public void add(SolveStatistics other) {
+        nodeCount += other.nodeCount;
+        backtrackCount += other.backtrackCount;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        propagationNanos += other.propagationNanos;
+        totalNanos += other.totalNanos;
+
+        for (int i = 0; i < TECHNIQUES.length; i++) {
+            placements[i] += other.placements[i];
+            eliminations[i] += other.eliminations[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d guesses, %d backtracks, max depth %d, propagation %.3f ms, search %.3f ms",
+                nodeCount, backtrackCount, maxDepth, propagationNanos / 1e6, getSearchNanos() / 1e6));
+
+        for (Technique technique : TECHNIQUES) {
+            builder.append(String.format("%n  %-18s %8d placed %10d eliminated", technique,
+                    placements[technique.ordinal()], eliminations[technique.ordinal()]));
+        }
+        return builder.toString();
+    }
+}
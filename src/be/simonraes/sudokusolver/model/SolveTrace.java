@@ -0,0 +1,145 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Compact log of the placements and backtracks of a FasterSolver search, used to replay the search as an animation
+ * without running it again. Every event is a single varint: a placement is (cell * 9 + value - 1) << 1 and takes two
+ * bytes, a backtrack is (number of placements taken back) << 1 | 1 and usually takes one.
+ * The givens aren't recorded, the log starts from the board the solver was given. Recording stops at the first
+ * solution, or once the log reaches its maximum size; isComplete tells which one happened.
+ */
+public class SolveTrace {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxSize;
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int eventCount;
+    private boolean complete = true;
+
+    /**
+     * @param maxSize number of bytes after which recording stops.
+     */
+    public SolveTrace(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Empties the log, the buffer is kept for the next recording.
+     */
+    public void reset() {
+        size = 0;
+        eventCount = 0;
+        complete = true;
+    }
+
+    void place(final int cell, final int value) {
+        write((cell * SudokuTables.SIZE + value - 1) << 1);
+    }
+
+    void undo(final int placementCount) {
+        write(placementCount << 1 | 1);
+    }
+
+    private void write(int event) {
+        if (!complete) {
+            return;
+        }
+        if (size + 5 > maxSize) {
+            complete = false;
+            return;
+        }
+        if (size + 5 > data.length) {
+            final byte[] newData = new byte[Math.min(data.length * 2, maxSize)];
+            System.arraycopy(data, 0, newData, 0, size);
+            data = newData;
+        }
+
+        while ((event & ~0x7F) != 0) {
+            data[size++] = (byte) (event & 0x7F | 0x80);
+            event >>>= 7;
+        }
+        data[size++] = (byte) event;
+        eventCount++;
+    }
+
+    /**
+     * Returns false if the log ran out of space before the solution was reached.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the size of the log in bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Plays a trace back onto a board, one event at a time. Placed values are marked as solution, a backtrack clears
+     * the cells it takes back. Only the cells placed on the current path are remembered, so this doesn't allocate
+     * while it plays.
+     */
+    public static class Replay {
+
+        private final SolveTrace trace;
+        private final SudokuBoard board;
+        private int position;
+        // Cells placed by the replay that haven't been taken back yet, in the order they were placed.
+        private final int[] placedCells = new int[SudokuTables.CELLS];
+        private int placedCount;
+
+        /**
+         * @param board the board the trace was recorded on, without the solution.
+         */
+        public Replay(SolveTrace trace, SudokuBoard board) {
+            this.trace = trace;
+            this.board = board;
+        }
+
+        /**
+         * Applies up to count events.
+         *
+         * @return the number of events that were applied, less than count once the trace ends.
+         */
+        public int step(final int count) {
+            int applied = 0;
+
+            while (applied < count && position < trace.size) {
+                int event = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = trace.data[position++];
+                    event |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+
+                if ((event & 1) == 0) {
+                    final int placement = event >>> 1;
+                    final int cell = placement / SudokuTables.SIZE;
+                    board.setSolution(cell / SudokuTables.SIZE, cell % SudokuTables.SIZE,
+                            placement % SudokuTables.SIZE + 1);
+                    placedCells[placedCount++] = cell;
+                } else {
+                    for (int i = event >>> 1; i > 0; i--) {
+                        final int cell = placedCells[--placedCount];
+                        board.clear(cell / SudokuTables.SIZE, cell % SudokuTables.SIZE);
+                    }
+                }
+                applied++;
+            }
+            return applied;
+        }
+
+        public boolean isFinished() {
+            return position == trace.size;
+        }
+    }
+}
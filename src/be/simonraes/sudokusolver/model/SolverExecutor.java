@@ -0,0 +1,176 @@
+package be.simonraes.sudokusolver.model;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the solvers on a fixed pool of background threads, so a long solve doesn't hold up a hint the way the serial
+ * AsyncTask executor did. Waiting tasks start in order of priority, then in the order they were submitted. Results
+ * and progress are handed to the callback executor (the main thread in the app) and are dropped once the task's
+ * CancellationToken is cancelled, so a cancelled task never reaches the UI.
+ */
+public class SolverExecutor {
+
+    /**
+     * Earlier constants start first.
+     */
+    public enum Priority {
+        HINT, SOLVE
+    }
+
+    /**
+     * Background part of a task. Should return early once the token is cancelled.
+     */
+    public interface Task<T> {
+        public T run(CancellationToken token);
+    }
+
+    /**
+     * Receives the result of a task on the callback executor.
+     */
+    public interface Callback<T> {
+        public void onFinished(T result);
+
+        /**
+         * Called instead of onFinished if the task threw.
+         */
+        public void onFailed(RuntimeException exception);
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final Executor callbackExecutor;
+    private final AtomicLong submitCount = new AtomicLong();
+    // Tokens of the tasks that are running, cancelled on shutdown so the solvers stop.
+    private final Set<CancellationToken> runningTokens =
+            Collections.newSetFromMap(new ConcurrentHashMap<CancellationToken, Boolean>());
+    private volatile boolean shutDown;
+
+    /**
+     * @param threadCount      number of tasks that can run at the same time.
+     * @param callbackExecutor runs the callbacks and the progress updates.
+     */
+    public SolverExecutor(int threadCount, Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "SolverExecutor-" + threadNumber.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a task.
+     *
+     * @param callback receives the result unless the task was cancelled, may be null.
+     * @return the token that cancels the task.
+     */
+    public <T> CancellationToken submit(Priority priority, Task<T> task, Callback<T> callback) {
+        final CancellationToken token = new CancellationToken();
+        pool.execute(new Job<T>(priority, submitCount.getAndIncrement(), token, task, callback));
+        return token;
+    }
+
+    /**
+     * Runs a progress update of a running task on the callback executor, unless the task is cancelled or the executor
+     * is shut down by then.
+     */
+    public void post(final CancellationToken token, final Runnable update) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!shutDown && !token.isCancelled()) {
+                    update.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the running tasks and drops the waiting ones. From now on no callback or progress update is run, also not
+     * the ones that were already posted.
+     */
+    public void shutdown() {
+        shutDown = true;
+        for (CancellationToken token : runningTokens) {
+            token.cancel();
+        }
+        pool.shutdownNow();
+    }
+
+    private class Job<T> implements Runnable, Comparable<Job<?>> {
+
+        private final Priority priority;
+        private final long order;
+        private final CancellationToken token;
+        private final Task<T> task;
+        private final Callback<T> callback;
+
+        Job(Priority priority, long order, CancellationToken token, Task<T> task, Callback<T> callback) {
+            this.priority = priority;
+            this.order = order;
+            this.token = token;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (token.isCancelled()) {
+                token.detach();
+                return;
+            }
+
+            T result = null;
+            RuntimeException failure = null;
+            runningTokens.add(token);
+            token.attach(Thread.currentThread());
+            try {
+                result = task.run(token);
+            } catch (RuntimeException e) {
+                // Reported, otherwise the caller would wait for a result forever.
+                failure = e;
+            } finally {
+                token.detach();
+                runningTokens.remove(token);
+            }
+
+            if (callback != null) {
+                final T finalResult = result;
+                final RuntimeException finalFailure = failure;
+                post(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (finalFailure != null) {
+                            callback.onFailed(finalFailure);
+                        } else {
+                            callback.onFinished(finalResult);
+                        }
+                    }
+                });
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            return order < other.order ? -1 : order == other.order ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package be.simonraes.sudokusolver.model;
+
+import be.simonraes.sudokusolver.exception.CalculationTimeOutException;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solves the input in the background while the user is still typing, so Solve and Hint usually find the answer ready.
+ * Every schedule call restarts a short delay and the solve only starts once the input stopped changing, on a single
+ * low priority thread. A newer schedule or a cancel stops a solve that is still running for older input.
+ * The listener is called on the solver thread.
+ */
+public class SpeculativeSolver {
+
+    private static final long MAX_DURATION = 1000;
+    private static final long MAX_NODES = 200000;
+
+    public enum Verdict {
+        UNIQUE, MULTIPLE, NONE, TIMED_OUT
+    }
+
+    public interface Listener {
+        /**
+         * Called on the solver thread when a solve finished for the latest scheduled input.
+         */
+        public void speculativeSolveFinished(Result result);
+    }
+
+    /**
+     * Outcome of one speculative solve.
+     */
+    public static class Result {
+        private final int[] cells;
+        private final Verdict verdict;
+        private final int[] solution;
+        private final SolveStatistics statistics;
+
+        Result(int[] cells, Verdict verdict, int[] solution, SolveStatistics statistics) {
+            this.cells = cells;
+            this.verdict = verdict;
+            this.solution = solution;
+            this.statistics = statistics;
+        }
+
+        /**
+         * Returns true if this is the result for the supplied board.
+         */
+        public boolean matches(int[] cells) {
+            return Arrays.equals(this.cells, cells);
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        /**
+         * Returns the first solution (flat, index = x * 9 + y), null for NONE and TIMED_OUT.
+         */
+        public int[] getSolution() {
+            return solution;
+        }
+
+        public SolveStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    private final long delayMillis;
+    private final Listener listener;
+
+    // Increased by every schedule and cancel, a solve for an older generation is stale.
+    private final AtomicLong generation = new AtomicLong();
+    // Generation of the solve running on the solver thread, only touched by that thread.
+    private long runningGeneration;
+    private ScheduledFuture<?> pending;
+    private volatile Result result;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "SpeculativeSolver");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final SolveStatistics statistics = new SolveStatistics();
+
+    private final FasterSolver solver = new FasterSolver(FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES) {
+        @Override
+        protected boolean isCancelled() {
+            return runningGeneration != generation.get();
+        }
+    };
+
+    /**
+     * @param delayMillis time the input has to stay the same before a solve starts.
+     */
+    public SpeculativeSolver(long delayMillis, Listener listener) {
+        this.delayMillis = delayMillis;
+        this.listener = listener;
+        solver.setLimits(MAX_DURATION, MAX_NODES);
+        solver.setStatistics(statistics);
+    }
+
+    /**
+     * Solves a copy of the board after the delay, unless another schedule or a cancel comes first.
+     */
+    public synchronized void schedule(final int[] cells) {
+        final long task = restart();
+        final int[] input = cells.clone();
+
+        pending = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                solve(task, input);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops the scheduled solve and stops a running one.
+     */
+    public synchronized void cancel() {
+        restart();
+    }
+
+    /**
+     * Returns the result for the supplied board if it is ready, otherwise null.
+     */
+    public Result getResult(int[] cells) {
+        final Result current = result;
+        return current != null && current.matches(cells) ? current : null;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private long restart() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        return generation.incrementAndGet();
+    }
+
+    private void solve(final long task, final int[] input) {
+        if (task != generation.get()) {
+            return;
+        }
+
+        Result next = result;
+        if (next == null || !next.matches(input)) {
+            runningGeneration = task;
+            final int[] board = input.clone();
+            Verdict verdict;
+
+            try {
+                final int solutionCount = solver.countSolutions(board, 2);
+                verdict = solutionCount == 0 ? Verdict.NONE : solutionCount == 1 ? Verdict.UNIQUE : Verdict.MULTIPLE;
+            } catch (CalculationTimeOutException e) {
+                verdict = Verdict.TIMED_OUT;
+            }
+
+            if (solver.isCancelled()) {
+                return;
+            }
+
+            final SolveStatistics solveStatistics = new SolveStatistics();
+            solveStatistics.add(statistics);
+            next = new Result(input, verdict, verdict == Verdict.UNIQUE || verdict == Verdict.MULTIPLE ? board : null,
+                    solveStatistics);
+        }
+
+        synchronized (this) {
+            if (task != generation.get()) {
+                return;
+            }
+            result = next;
+        }
+        listener.speculativeSolveFinished(next);
+    }
+}
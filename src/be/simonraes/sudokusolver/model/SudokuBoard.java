@@ -0,0 +1,146 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * The 81 cells shown on screen, one byte per cell (index = x * 9 + y). The low 4 bits hold the value, 0 for an empty
+ * cell, the high 4 bits say where the value came from and whether it conflicts with another cell.
+ * Placing, clearing and copying values never allocates, a copy of the whole board is a single 81 byte array.
+ */
+public class SudokuBoard {
+
+    private static final int SIZE = SudokuTables.SIZE;
+
+    private static final int VALUE_MASK = 0x0F;
+    private static final int INPUT = 0x10;
+    private static final int ERROR = 0x20;
+    private static final int SOLUTION = 0x40;
+    private static final int HINT = 0x80;
+
+    private final byte[] cells;
+
+    public SudokuBoard() {
+        cells = new byte[SudokuTables.CELLS];
+    }
+
+    private SudokuBoard(byte[] cells) {
+        this.cells = cells;
+    }
+
+    /**
+     * Returns an independent copy, flags included.
+     */
+    public SudokuBoard copy() {
+        return new SudokuBoard(cells.clone());
+    }
+
+    /**
+     * Overwrites every cell of this board with the cells of another one.
+     */
+    public void copyFrom(SudokuBoard other) {
+        System.arraycopy(other.cells, 0, cells, 0, SudokuTables.CELLS);
+    }
+
+    public int getValue(int x, int y) {
+        return cells[x * SIZE + y] & VALUE_MASK;
+    }
+
+    public int getValue(int cell) {
+        return cells[cell] & VALUE_MASK;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return (cells[x * SIZE + y] & VALUE_MASK) == 0;
+    }
+
+    /**
+     * Value entered by the user.
+     */
+    public boolean isInput(int x, int y) {
+        return (cells[x * SIZE + y] & INPUT) != 0;
+    }
+
+    /**
+     * Value that shares a row, column or box with the same value, see ConflictIndex.
+     */
+    public boolean isError(int x, int y) {
+        return (cells[x * SIZE + y] & ERROR) != 0;
+    }
+
+    /**
+     * Value filled in by a solver.
+     */
+    public boolean isSolution(int x, int y) {
+        return (cells[x * SIZE + y] & SOLUTION) != 0;
+    }
+
+    /**
+     * Value revealed as a hint.
+     */
+    public boolean isHint(int x, int y) {
+        return (cells[x * SIZE + y] & HINT) != 0;
+    }
+
+    public void setInput(int x, int y, int value) {
+        cells[x * SIZE + y] = (byte) (value | INPUT);
+    }
+
+    public void setSolution(int x, int y, int value) {
+        cells[x * SIZE + y] = (byte) (value | SOLUTION);
+    }
+
+    public void setHint(int x, int y, int value) {
+        cells[x * SIZE + y] = (byte) (value | HINT);
+    }
+
+    /**
+     * Empties a cell and drops its flags.
+     */
+    public void clear(int x, int y) {
+        cells[x * SIZE + y] = 0;
+    }
+
+    public void setError(int cell, boolean error) {
+        cells[cell] = (byte) (error ? cells[cell] | ERROR : cells[cell] & ~ERROR);
+    }
+
+    /**
+     * Empties every cell.
+     */
+    public void clearAll() {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            cells[i] = 0;
+        }
+    }
+
+    /**
+     * Empties every cell that was filled in by a solver. Input and hints stay.
+     */
+    public void clearSolution() {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            if ((cells[i] & SOLUTION) != 0) {
+                cells[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Fills every empty cell with the value from a solution (flat, index = x * 9 + y), marked as solution.
+     */
+    public void fillSolution(int[] solution) {
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            if ((cells[i] & VALUE_MASK) == 0) {
+                cells[i] = (byte) (solution[i] | SOLUTION);
+            }
+        }
+    }
+
+    /**
+     * Returns the values as a new flat int[] (index = x * 9 + y), 0 for an empty cell.
+     */
+    public int[] getValues() {
+        final int[] values = new int[SudokuTables.CELLS];
+        for (int i = 0; i < SudokuTables.CELLS; i++) {
+            values[i] = cells[i] & VALUE_MASK;
+        }
+        return values;
+    }
+}
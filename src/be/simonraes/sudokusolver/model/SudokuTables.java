@@ -0,0 +1,97 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * Lookup tables for the 9x9 grid, shared by the solvers and the input validation. Cells are numbered
+ * x * 9 + y, candidate bit fields have bit (value - 1) set for every allowed value.
+ * Everything is computed once when the class is loaded, so the hot paths only do array lookups instead of
+ * working out boxes and peers or counting bits.
+ */
+public final class SudokuTables {
+
+    public static final int SIZE = 9;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int BOX_SIZE = 3;
+    public static final int PEER_COUNT = 20;
+    public static final int UNIT_COUNT = SIZE * 3;
+    public static final int ALL_ALLOWED = (1 << SIZE) - 1;
+
+    /**
+     * Row, column and box of every cell.
+     */
+    public static final int[] ROW = new int[CELLS];
+    public static final int[] COLUMN = new int[CELLS];
+    public static final int[] BOX = new int[CELLS];
+
+    /**
+     * The 20 cells that share a row, column or box with a cell, at index cell * PEER_COUNT.
+     */
+    public static final int[] PEERS = new int[CELLS * PEER_COUNT];
+
+    /**
+     * The cells of every unit in order, at index unit * SIZE. Units 0-8 are the rows, 9-17 the columns and 18-26
+     * the boxes.
+     */
+    public static final int[] UNIT_CELLS = new int[UNIT_COUNT * SIZE];
+
+    /**
+     * The row, column and box unit of every cell, at index cell * 3.
+     */
+    public static final int[] CELL_UNITS = new int[CELLS * 3];
+
+    /**
+     * The same three units as a bit field, bit unit is set for every unit the cell is in.
+     */
+    public static final int[] CELL_UNIT_BITS = new int[CELLS];
+
+    /**
+     * Number of set bits in a candidate bit field.
+     */
+    public static final int[] BIT_COUNT = new int[ALL_ALLOWED + 1];
+
+    /**
+     * The value of a candidate bit field with exactly one bit set, 0 for any other bit field.
+     */
+    public static final int[] SINGLE_VALUE = new int[ALL_ALLOWED + 1];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int x = cell / SIZE;
+            final int y = cell % SIZE;
+            final int box = (x / BOX_SIZE) * BOX_SIZE + y / BOX_SIZE;
+
+            ROW[cell] = x;
+            COLUMN[cell] = y;
+            BOX[cell] = box;
+
+            UNIT_CELLS[x * SIZE + y] = cell;
+            UNIT_CELLS[(SIZE + y) * SIZE + x] = cell;
+            UNIT_CELLS[(SIZE * 2 + box) * SIZE + (x % BOX_SIZE) * BOX_SIZE + y % BOX_SIZE] = cell;
+
+            CELL_UNITS[cell * 3] = x;
+            CELL_UNITS[cell * 3 + 1] = SIZE + y;
+            CELL_UNITS[cell * 3 + 2] = SIZE * 2 + box;
+            CELL_UNIT_BITS[cell] = (1 << x) | (1 << (SIZE + y)) | (1 << (SIZE * 2 + box));
+        }
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            int peer = cell * PEER_COUNT;
+
+            for (int other = 0; other < CELLS; other++) {
+                if (other != cell && (ROW[other] == ROW[cell] || COLUMN[other] == COLUMN[cell] || BOX[other] == BOX[cell])) {
+                    PEERS[peer++] = other;
+                }
+            }
+        }
+
+        for (int bits = 1; bits <= ALL_ALLOWED; bits++) {
+            BIT_COUNT[bits] = BIT_COUNT[bits >> 1] + (bits & 1);
+        }
+
+        for (int value = 1; value <= SIZE; value++) {
+            SINGLE_VALUE[1 << (value - 1)] = value;
+        }
+    }
+
+    private SudokuTables() {
+    }
+}
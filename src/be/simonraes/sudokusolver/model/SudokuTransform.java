@@ -0,0 +1,59 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * A validity preserving transformation of a 9x9 board: an optional transposition, a reordering of the rows and
+ * columns that keeps bands and stacks together, and a relabelling of the digits. Boards are flat int[81]
+ * (index = x * 9 + y) with 0 for an empty cell. Created by a Canonicalizer.
+ */
+public class SudokuTransform {
+
+    private static final int SIZE = SudokuTables.SIZE;
+
+    private final boolean transposed;
+    // Row r of the transformed board is row rows[r] of the (transposed) source board, same for the columns.
+    private final int[] rows;
+    private final int[] columns;
+    // Source digit to transformed digit and back, index 0 maps the empty cell onto itself.
+    private final int[] labels;
+    private final int[] inverseLabels = new int[SIZE + 1];
+
+    SudokuTransform(boolean transposed, int[] rows, int[] columns, int[] labels) {
+        this.transposed = transposed;
+        this.rows = rows.clone();
+        this.columns = columns.clone();
+        this.labels = labels.clone();
+
+        for (int digit = 0; digit <= SIZE; digit++) {
+            inverseLabels[this.labels[digit]] = digit;
+        }
+    }
+
+    /**
+     * Writes the transformed version of a board into out, which must be a different array.
+     */
+    public void apply(final int[] cells, final int[] out) {
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                out[r * SIZE + c] = labels[cells[getSourceCell(r, c)]];
+            }
+        }
+    }
+
+    /**
+     * Undoes the transformation: writes the board that apply would turn into the supplied one into out, which must be
+     * a different array. Used to map a solution of the transformed puzzle back onto the original.
+     */
+    public void revert(final int[] transformedCells, final int[] out) {
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                out[getSourceCell(r, c)] = inverseLabels[transformedCells[r * SIZE + c]];
+            }
+        }
+    }
+
+    private int getSourceCell(final int r, final int c) {
+        final int x = rows[r];
+        final int y = columns[c];
+        return transposed ? y * SIZE + x : x * SIZE + y;
+    }
+}
@@ -0,0 +1,59 @@
+package be.simonraes.sudokusolver.model;
+
+/**
+ * The ways the FasterSolver places values or removes candidates. Every technique except GUESS can be switched off
+ * with FasterSolver.setTechniqueEnabled.
+ */
+public enum Technique {
+    /**
+     * A cell with only one candidate left (moveNothingElseAllowed).
+     */
+    NAKED_SINGLE(true),
+    /**
+     * A digit that fits in only one cell of a row or column (moveNoOtherRowOrColumnAllowed).
+     */
+    HIDDEN_SINGLE(true),
+    /**
+     * A digit that fits in only one cell of a box (moveNoOtherBoxCellAllowed).
+     */
+    BOX_HIDDEN_SINGLE(true),
+    /**
+     * Two cells of a row or column with the same two candidates (applyNakedPairs).
+     */
+    NAKED_PAIR(true),
+    /**
+     * Two cells of a box with the same two candidates.
+     */
+    BOX_NAKED_PAIR(true),
+    /**
+     * Line/box interactions within a band or stack (applyLineCandidateConstraints).
+     */
+    LINE_CANDIDATES(true),
+    /**
+     * A box whose candidates for a digit lie on one line (applyPointing).
+     */
+    POINTING(true),
+    /**
+     * Two digits that fit in only the same two cells of a row, column or box (applyHiddenPairs).
+     */
+    HIDDEN_PAIR(true),
+    /**
+     * Two lines whose candidates for a digit lie on the same two crossing lines (applyXWings). Off by default: with the
+     * other techniques on it hardly ever saves a guess, but it does cost a full scan per digit.
+     */
+    X_WING(false),
+    /**
+     * A value tried by the brute force phase.
+     */
+    GUESS(true);
+
+    private final boolean enabledByDefault;
+
+    Technique(boolean enabledByDefault) {
+        this.enabledByDefault = enabledByDefault;
+    }
+
+    public boolean isEnabledByDefault() {
+        return enabledByDefault;
+    }
+}
@@ -9,7 +9,7 @@ import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import be.simonraes.sudokusolver.R;
-import be.simonraes.sudokusolver.model.GridValue;
+import be.simonraes.sudokusolver.model.SudokuBoard;
 
 /**
  * Custom View to display a 9*9 Sudoku grid.
@@ -22,7 +22,10 @@ public class SudokuGrid extends View {
     private int selectionRow = -1;         // X index of selection (0-8)
     private int selectionCol = -1;         // Y index of selection (0-8)
 
-    private GridValue[][] gridValues;
+    private SudokuBoard gridValues;
+
+    // Text per value, so drawing a frame doesn't create any strings.
+    private static final String[] DIGITS = {"", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
 
     public SudokuGrid(Context context) {
         super(context);
@@ -103,7 +106,7 @@ public class SudokuGrid extends View {
         // Slight overdraw here (some of the small gridlines are overwritten by major gridlines)
 
         // Draw the minor grid lines
-        for (int i = 1; i < gridValues.length; i++) {
+        for (int i = 1; i < 9; i++) {
             // Horizontal
             canvas.drawLine(0, i * cellHeight, getWidth(), i * cellHeight, minorLinesPaint);
             // Vertical
@@ -177,37 +180,29 @@ public class SudokuGrid extends View {
 
         if (gridValues != null) {
 
-            Paint paintForSquare = null;
-            String textForSquare;
+            Paint paintForSquare;
 
             for (int i = 0; i < 9; i++) {
                 for (int j = 0; j < 9; j++) {
 
-                    // Set correct paint style.
-                    if (gridValues[j][i] != null) {
-                        if (gridValues[j][i].isError()) {
-                            paintForSquare = errorPaint;
-                        } else if (gridValues[j][i].isInput()) {
-                            paintForSquare = inputPaint;
-                        } else if (gridValues[j][i].isHint()) {
-                            paintForSquare = hintPaint;
-                        } else {
-                            paintForSquare = solutionPaint;
-                        }
+                    // Empty cells have nothing to draw.
+                    if (gridValues.isEmpty(j, i)) {
+                        continue;
                     }
 
-                    // Set text for square.
-                    if (gridValues[j][i] != null) {
-                        if (Integer.toString(gridValues[j][i].getValue()).equals("0")) {
-                            textForSquare = "";
-                        } else {
-                            textForSquare = Integer.toString(gridValues[j][i].getValue());
-                        }
-
-                        canvas.drawText(textForSquare, i * cellWidth + x, j * cellHeight + y, paintForSquare);
+                    // Set correct paint style.
+                    if (gridValues.isError(j, i)) {
+                        paintForSquare = errorPaint;
+                    } else if (gridValues.isInput(j, i)) {
+                        paintForSquare = inputPaint;
+                    } else if (gridValues.isHint(j, i)) {
+                        paintForSquare = hintPaint;
+                    } else {
+                        paintForSquare = solutionPaint;
                     }
-                    // Reset paint so check will still work for the next square.
-                    paintForSquare = null;
+
+                    canvas.drawText(DIGITS[gridValues.getValue(j, i)], i * cellWidth + x, j * cellHeight + y,
+                            paintForSquare);
                 }
             }
         }
@@ -248,7 +243,7 @@ public class SudokuGrid extends View {
     }
 
 
-    public void setValues(GridValue[][] values) {
+    public void setValues(SudokuBoard values) {
         this.gridValues = values;
         invalidate();
     }
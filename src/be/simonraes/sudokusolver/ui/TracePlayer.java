@@ -0,0 +1,99 @@
+package be.simonraes.sudokusolver.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import be.simonraes.sudokusolver.model.SolveTrace;
+
+/**
+ * Plays a recorded solve back on the main thread. Steps are due at a fixed interval from the start, every frame
+ * applies the steps that are due and redraws once, so a short step time plays several steps per frame instead of
+ * falling behind. Nothing runs between frames.
+ */
+public class TracePlayer {
+
+    private static final long FRAME_MILLIS = 16;
+
+    public interface Listener {
+        /**
+         * Called after a frame changed the board.
+         */
+        public void onFrame();
+
+        /**
+         * Called once the whole trace has been played.
+         */
+        public void onFinished();
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SolveTrace.Replay replay;
+    private final long stepMillis;
+    private final Listener listener;
+
+    private long startTime;
+    private long stepCount;
+    private boolean running = false;
+
+    private final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            playFrame();
+        }
+    };
+
+    /**
+     * @param stepMillis time between two steps.
+     */
+    public TracePlayer(SolveTrace.Replay replay, long stepMillis, Listener listener) {
+        this.replay = replay;
+        this.stepMillis = Math.max(stepMillis, 1);
+        this.listener = listener;
+    }
+
+    public void start() {
+        running = true;
+        startTime = SystemClock.uptimeMillis();
+        stepCount = 0;
+        handler.post(frame);
+    }
+
+    /**
+     * Stops at the current step, the listener isn't called anymore.
+     */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(frame);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void playFrame() {
+        if (!running) {
+            return;
+        }
+
+        final long now = SystemClock.uptimeMillis();
+        // The first step is due right away.
+        final long dueCount = (now - startTime) / stepMillis + 1;
+        final int playedCount = replay.step((int) Math.min(dueCount - stepCount, Integer.MAX_VALUE));
+        stepCount += playedCount;
+
+        if (playedCount > 0) {
+            listener.onFrame();
+            if (!running) {
+                return;
+            }
+        }
+
+        if (replay.isFinished()) {
+            running = false;
+            listener.onFinished();
+        } else {
+            final long nextStepTime = startTime + stepCount * stepMillis;
+            handler.postAtTime(frame, Math.max(nextStepTime, now + FRAME_MILLIS));
+        }
+    }
+}
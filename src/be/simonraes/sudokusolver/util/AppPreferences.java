@@ -2,6 +2,7 @@ package be.simonraes.sudokusolver.util;
 
 import android.content.Context;
 import android.preference.PreferenceManager;
+import be.simonraes.sudokusolver.model.FasterSolver;
 
 /**
  * Created by Simon Raes on 28/07/2014.
@@ -28,4 +29,15 @@ public class AppPreferences {
         }
         return stepTime;
     }
+
+    public static boolean useDancingLinks(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getString("be.simonraes.sudokusolver.preference.algorithm", "faster").equals("dancinglinks");
+    }
+
+    public static FasterSolver.BranchStrategy getBranchStrategy(Context context) {
+        if (PreferenceManager.getDefaultSharedPreferences(context).getBoolean("be.simonraes.sudokusolver.preference.fewestcandidates", true)) {
+            return FasterSolver.BranchStrategy.MINIMUM_REMAINING_VALUES;
+        }
+        return FasterSolver.BranchStrategy.FIRST_EMPTY_CELL;
+    }
 }
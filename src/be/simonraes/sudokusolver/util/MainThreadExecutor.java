@@ -0,0 +1,19 @@
+package be.simonraes.sudokusolver.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the supplied Runnables on the main (UI) thread.
+ */
+public class MainThreadExecutor implements Executor {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute(Runnable runnable) {
+        handler.post(runnable);
+    }
+}
@@ -1,6 +1,6 @@
 package be.simonraes.sudokusolver.util;
 
-import be.simonraes.sudokusolver.model.GridValue;
+import be.simonraes.sudokusolver.model.SudokuBoard;
 
 /**
  * Help class to output the content of a two-dimensional array.
@@ -21,12 +21,12 @@ public class Printer {
         }
     }
 
-    public static void printArray(GridValue[][] values){
+    public static void printArray(SudokuBoard values){
         if(values!=null) {
-            for (int i = 0; i < values.length; i++) {
-                for (int j = 0; j < values[i].length; j++) {
-                    if(values[i][j]!=null){
-                        System.out.print(values[i][j].getValue() + " ");
+            for (int i = 0; i < 9; i++) {
+                for (int j = 0; j < 9; j++) {
+                    if(!values.isEmpty(i, j)){
+                        System.out.print(values.getValue(i, j) + " ");
                     } else {
                         System.out.print("n ");
                     }